@@ -2,6 +2,7 @@ package ru.practicum.explorewithme.category.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.explorewithme.category.dto.CategoryDto;
 import ru.practicum.explorewithme.category.dto.NewCategoryDto;
@@ -37,9 +38,11 @@ public class CategoryController {
 
     //Public part
     @GetMapping("/categories")
-    public List<CategoryDto> findCategories(@RequestParam(required = false, defaultValue = "0") Integer from,
-                                            @RequestParam(required = false, defaultValue = "10") Integer size) {
-        return categoryService.findCategories(from, size);
+    public ResponseEntity<List<CategoryDto>> findCategories(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "0") Integer from,
+            @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return categoryService.findCategories(cursor, from, size).toResponse();
     }
 
     @GetMapping("categories/{catId}")
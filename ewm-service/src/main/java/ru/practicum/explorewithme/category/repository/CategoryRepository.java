@@ -1,9 +1,14 @@
 package ru.practicum.explorewithme.category.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import ru.practicum.explorewithme.category.model.Category;
 
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    List<Category> findByIdGreaterThan(Long afterId, Pageable pageable);
 }
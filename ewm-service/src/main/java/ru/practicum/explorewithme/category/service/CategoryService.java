@@ -3,6 +3,7 @@ package ru.practicum.explorewithme.category.service;
 import ru.practicum.explorewithme.category.dto.CategoryDto;
 import ru.practicum.explorewithme.category.dto.NewCategoryDto;
 import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.pagination.CursorPage;
 
 import java.util.List;
 
@@ -14,7 +15,7 @@ public interface CategoryService {
 
     CategoryDto updateCategory(Long categoryId, CategoryDto categoryDto);
 
-    List<CategoryDto> findCategories(Integer from, Integer size);
+    CursorPage<CategoryDto> findCategories(String cursor, Integer from, Integer size);
 
     CategoryDto findCategoryById(Long categoryId);
 
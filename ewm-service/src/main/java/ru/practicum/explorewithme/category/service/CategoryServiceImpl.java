@@ -2,8 +2,8 @@ package ru.practicum.explorewithme.category.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.category.dto.CategoryDto;
@@ -13,6 +13,9 @@ import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.category.repository.CategoryRepository;
 import ru.practicum.explorewithme.exception.CategoryNotFoundException;
 import ru.practicum.explorewithme.exception.DataValidationException;
+import ru.practicum.explorewithme.pagination.Cursor;
+import ru.practicum.explorewithme.pagination.CursorPage;
+import ru.practicum.explorewithme.pagination.OffsetPageRequest;
 
 import java.util.List;
 
@@ -53,11 +56,11 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
-    public List<CategoryDto> findCategories(Integer from, Integer size) {
+    public CursorPage<CategoryDto> findCategories(String cursor, Integer from, Integer size) {
         log.info("Выполняется запрос на получение категорий");
-        Pageable pageable = PageRequest.of(from / size, size);
-        List<Category> categories = categoryRepository.findAll(pageable).getContent();
-        return CategoryMapper.toDtos(categories);
+        Pageable pageable = OffsetPageRequest.of(cursor == null ? from : 0, size + 1, Sort.by("id"));
+        List<Category> categories = categoryRepository.findByIdGreaterThan(Cursor.afterId(cursor), pageable);
+        return CursorPage.of(categories, size, category -> Cursor.of(category.getId()), CategoryMapper::toDtos);
     }
 
     @Override
@@ -2,6 +2,7 @@ package ru.practicum.explorewithme.compilation.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.explorewithme.compilation.dto.CompilationDto;
 import ru.practicum.explorewithme.compilation.dto.NewCompilationDto;
@@ -19,10 +20,12 @@ public class CompilationController {
 
     //Public endpoints
     @GetMapping("/compilations")
-    public List<CompilationDto> findCompilations(@RequestParam(required = false, defaultValue = "false") String pinned,
-                                                 @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                 @RequestParam(required = false, defaultValue = "10") Integer size) {
-        return compService.findCompilations(Boolean.valueOf(pinned), from, size);
+    public ResponseEntity<List<CompilationDto>> findCompilations(
+            @RequestParam(required = false, defaultValue = "false") String pinned,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "0") Integer from,
+            @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return compService.findCompilations(Boolean.valueOf(pinned), cursor, from, size).toResponse();
     }
 
     @GetMapping("/compilations/{compId}")
@@ -1,11 +1,11 @@
 package ru.practicum.explorewithme.compilation.dto;
 
+import ru.practicum.explorewithme.StatisticViews;
 import ru.practicum.explorewithme.compilation.model.Compilation;
 import ru.practicum.explorewithme.event.dto.EventMapper;
 import ru.practicum.explorewithme.event.model.Event;
 
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 public class CompilationMapper {
@@ -23,7 +23,7 @@ public class CompilationMapper {
         return compilation;
     }
 
-    public static CompilationDto toCompilationDto(Compilation compilation, Map<Long, Long> views) {
+    public static CompilationDto toCompilationDto(Compilation compilation, StatisticViews views) {
         return CompilationDto.builder()
                 .id(compilation.getId())
                 .events(EventMapper.toShortDtos(compilation.getEvents(), views))
@@ -32,7 +32,7 @@ public class CompilationMapper {
                 .build();
     }
 
-    public static List<CompilationDto> toDtos(List<Compilation> compilations, Map<Long, Long> views) {
+    public static List<CompilationDto> toDtos(List<Compilation> compilations, StatisticViews views) {
         return compilations.stream()
                 .map(compilation -> toCompilationDto(compilation, views)).collect(Collectors.toList());
     }
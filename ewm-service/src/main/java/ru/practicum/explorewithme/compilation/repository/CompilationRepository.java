@@ -10,5 +10,5 @@ import java.util.List;
 @Repository
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
 
-    List<Compilation> findAllByIsPinned(Boolean isPinned, Pageable pageable);
+    List<Compilation> findAllByIsPinnedAndIdGreaterThan(Boolean isPinned, Long afterId, Pageable pageable);
 }
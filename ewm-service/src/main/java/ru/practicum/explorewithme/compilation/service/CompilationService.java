@@ -3,12 +3,13 @@ package ru.practicum.explorewithme.compilation.service;
 import ru.practicum.explorewithme.compilation.dto.CompilationDto;
 import ru.practicum.explorewithme.compilation.dto.NewCompilationDto;
 import ru.practicum.explorewithme.compilation.dto.UpdateCompilationRequest;
+import ru.practicum.explorewithme.pagination.CursorPage;
 
 import java.util.List;
 
 public interface CompilationService {
 
-    List<CompilationDto> findCompilations(Boolean pinned, Integer from, Integer size);
+    CursorPage<CompilationDto> findCompilations(Boolean pinned, String cursor, Integer from, Integer size);
 
     CompilationDto findCompilationById(Long compId);
 
@@ -2,10 +2,11 @@ package ru.practicum.explorewithme.compilation.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.StatisticViews;
 import ru.practicum.explorewithme.compilation.dto.CompilationDto;
 import ru.practicum.explorewithme.compilation.dto.CompilationMapper;
 import ru.practicum.explorewithme.compilation.dto.NewCompilationDto;
@@ -16,6 +17,9 @@ import ru.practicum.explorewithme.event.model.Event;
 import ru.practicum.explorewithme.event.service.EventService;
 import ru.practicum.explorewithme.event.service.EventStatService;
 import ru.practicum.explorewithme.exception.CompilationNotFoundException;
+import ru.practicum.explorewithme.pagination.Cursor;
+import ru.practicum.explorewithme.pagination.CursorPage;
+import ru.practicum.explorewithme.pagination.OffsetPageRequest;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -31,17 +35,20 @@ public class CompilationServiceImpl implements CompilationService {
     private final EventStatService statService;
 
     @Override
-    public List<CompilationDto> findCompilations(Boolean pinned, Integer from, Integer size) {
-        Set<Event> eventSet = new HashSet<>();
-        Pageable pageable = PageRequest.of(from / size, size);
-        List<Compilation> compilations = compilationRepository.findAllByIsPinned(pinned, pageable);
-        for (Compilation compilation : compilations) {
-            eventSet.addAll(compilation.getEvents());
-        }
-        List<Long> eventIds = eventSet.stream().map(Event::getId).collect(Collectors.toList());
-        Map<Long, Long> views = statService.getEventsViews(eventIds);
+    public CursorPage<CompilationDto> findCompilations(Boolean pinned, String cursor, Integer from, Integer size) {
+        Pageable pageable = OffsetPageRequest.of(cursor == null ? from : 0, size + 1, Sort.by("id"));
+        List<Compilation> compilations = compilationRepository.findAllByIsPinnedAndIdGreaterThan(pinned,
+                Cursor.afterId(cursor), pageable);
         log.info("Выполнен запрос на поиск подборок событий");
-        return CompilationMapper.toDtos(compilations, views);
+        return CursorPage.of(compilations, size, compilation -> Cursor.of(compilation.getId()), page -> {
+            Set<Event> eventSet = new HashSet<>();
+            for (Compilation compilation : page) {
+                eventSet.addAll(compilation.getEvents());
+            }
+            List<Long> eventIds = eventSet.stream().map(Event::getId).collect(Collectors.toList());
+            StatisticViews views = statService.getEventsViews(eventIds);
+            return CompilationMapper.toDtos(page, views);
+        });
     }
 
     @Override
@@ -49,7 +56,7 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation compilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new CompilationNotFoundException("Подборка с id " + compId + " не найдена"));
         List<Long> events = compilation.getEvents().stream().map(Event::getId).collect(Collectors.toList());
-        Map<Long, Long> views = statService.getEventsViews(events);
+        StatisticViews views = statService.getEventsViews(events);
         log.info("Выполнен поиск подборки событий по id {}", compId);
         return CompilationMapper.toCompilationDto(compilation, views);
     }
@@ -58,7 +65,7 @@ public class CompilationServiceImpl implements CompilationService {
     @Transactional
     public CompilationDto addCompilation(NewCompilationDto compilationDto) {
         List<Event> events;
-        Map<Long, Long> views = new HashMap<>();
+        StatisticViews views = new StatisticViews();
         if (compilationDto.getEvents() != null) {
             events = eventService.findAllByIds(compilationDto.getEvents());
             views = statService.getEventsViews(events.stream().map(Event::getId).collect(Collectors.toList()));
@@ -85,7 +92,7 @@ public class CompilationServiceImpl implements CompilationService {
     public CompilationDto updateCompilation(Long compId, UpdateCompilationRequest update) {
         Compilation oldCompilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new CompilationNotFoundException("Подборка с id " + compId + " не найдена"));
-        Map<Long, Long> views = new HashMap<>();
+        StatisticViews views = new StatisticViews();
         if (update.getEvents() != null && !update.getEvents().isEmpty()) {
             List<Event> events = eventService.findAllByIds(update.getEvents());
             oldCompilation.setEvents(events);
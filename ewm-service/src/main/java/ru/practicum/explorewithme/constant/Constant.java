@@ -8,4 +8,5 @@ public class Constant {
     public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(TIME_FORMAT);
     public static final String SERVICE_ID = "ewm-main-service";
     public static final String EVENT_URI = "/events/";
+    public static final int VIEWS_PERIOD_DAYS = 100;
 }
@@ -4,9 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import ru.practicum.explorewithme.StatisticClient;
+import ru.practicum.explorewithme.StatisticHitRecorder;
 import ru.practicum.explorewithme.StatisticInDto;
 import ru.practicum.explorewithme.event.dto.*;
 import ru.practicum.explorewithme.event.service.EventService;
@@ -30,7 +31,7 @@ import static ru.practicum.explorewithme.constant.Constant.TIME_FORMAT;
 public class EventController {
 
     private final EventService eventService;
-    private final StatisticClient statisticClient;
+    private final StatisticHitRecorder hitRecorder;
 
     //Private endpoints
     @PostMapping(value = "/users/{userId}/events")
@@ -40,10 +41,12 @@ public class EventController {
     }
 
     @GetMapping("/users/{userId}/events")
-    public List<EventShortDto> findEventsOfUser(@PathVariable Long userId,
-                                                @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                @RequestParam(required = false, defaultValue = "10") Integer size) {
-        return eventService.findEventsOfUser(userId, from, size);
+    public ResponseEntity<List<EventShortDto>> findEventsOfUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "0") Integer from,
+            @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return eventService.findEventsOfUser(userId, cursor, from, size).toResponse();
     }
 
     @GetMapping("/users/{userId}/events/{eventId}")
@@ -71,19 +74,23 @@ public class EventController {
     }
 
     @GetMapping("/users/{userId}/followers/{followerId}/events")
-    public List<EventFullDto> findEventsBySubscriptionOfUser(@PathVariable Long userId,
-                                                             @PathVariable Long followerId,
-                                                             @PositiveOrZero @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                             @Positive @RequestParam(required = false, defaultValue = "10") Integer size) {
-        return eventService.findEventsBySubscriptionOfUser(userId, followerId, from, size);
+    public ResponseEntity<List<EventFullDto>> findEventsBySubscriptionOfUser(
+            @PathVariable Long userId,
+            @PathVariable Long followerId,
+            @RequestParam(required = false) String cursor,
+            @PositiveOrZero @RequestParam(required = false, defaultValue = "0") Integer from,
+            @Positive @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return eventService.findEventsBySubscriptionOfUser(userId, followerId, cursor, from, size).toResponse();
     }
 
     @GetMapping("/users/followers/{followerId}/events")
-    public List<EventShortDto> findEventsByAllSubscriptions(@PathVariable Long followerId,
-                                                            @RequestParam(required = false, defaultValue = "NEW") String sort,
-                                                            @PositiveOrZero @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                            @Positive @RequestParam(required = false, defaultValue = "10") Integer size) {
-        return eventService.findEventsByAllSubscriptions(followerId, sort, from, size);
+    public ResponseEntity<List<EventShortDto>> findEventsByAllSubscriptions(
+            @PathVariable Long followerId,
+            @RequestParam(required = false, defaultValue = "NEW") String sort,
+            @RequestParam(required = false) String cursor,
+            @PositiveOrZero @RequestParam(required = false, defaultValue = "0") Integer from,
+            @Positive @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return eventService.findEventsByAllSubscriptions(followerId, sort, cursor, from, size).toResponse();
     }
 
 //    //Admin endpoints
@@ -116,23 +123,40 @@ public class EventController {
 
     //Public endpoints
     @GetMapping("/events")
-    public List<EventShortDto> findEventsByPublic(@RequestParam(required = false) String text,
-                                                  @RequestParam(required = false) List<Long> categories,
-                                                  @RequestParam(required = false) Boolean paid,
-                                                  @RequestParam(required = false) @DateTimeFormat(pattern = TIME_FORMAT) LocalDateTime rangeStart,
-                                                  @RequestParam(required = false) @DateTimeFormat(pattern = TIME_FORMAT) LocalDateTime rangeEnd,
-                                                  @RequestParam(required = false) Boolean onlyAvailable,
-                                                  @RequestParam(required = false) String sort,
-                                                  @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                  @RequestParam(required = false, defaultValue = "10") Integer size,
-                                                  HttpServletRequest request) {
+    public ResponseEntity<List<EventShortDto>> findEventsByPublic(@RequestParam(required = false) String text,
+                                                                  @RequestParam(required = false) List<Long> categories,
+                                                                  @RequestParam(required = false) Boolean paid,
+                                                                  @RequestParam(required = false) @DateTimeFormat(pattern = TIME_FORMAT) LocalDateTime rangeStart,
+                                                                  @RequestParam(required = false) @DateTimeFormat(pattern = TIME_FORMAT) LocalDateTime rangeEnd,
+                                                                  @RequestParam(required = false) Boolean onlyAvailable,
+                                                                  @RequestParam(required = false) String sort,
+                                                                  @RequestParam(required = false, defaultValue = "0") Integer from,
+                                                                  @RequestParam(required = false, defaultValue = "10") Integer size,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Double lat,
+                                                                  @RequestParam(required = false) Double lon,
+                                                                  @RequestParam(required = false) Double radius,
+                                                                  @RequestParam(required = false) Double minLat,
+                                                                  @RequestParam(required = false) Double minLon,
+                                                                  @RequestParam(required = false) Double maxLat,
+                                                                  @RequestParam(required = false) Double maxLon,
+                                                                  HttpServletRequest request) {
         EventUserParam eventUserParam = new EventUserParam(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
-                sort, from, size);
+                sort, from, size, cursor, new EventGeoParam(lat, lon, radius, minLat, minLon, maxLat, maxLon));
         StatisticInDto statisticInDto = new StatisticInDto(SERVICE_ID, request.getRequestURI(), request.getRemoteAddr(),
                 LocalDateTime.now());
-        statisticClient.postHit(statisticInDto);
+        hitRecorder.record(statisticInDto);
         log.info(eventUserParam.toString());
-        return eventService.findEventsByPublic(eventUserParam, request);
+        return eventService.findEventsByPublic(eventUserParam, request).toResponse();
+    }
+
+    @GetMapping("/events/clusters")
+    public List<EventClusterDto> findEventClusters(@RequestParam Double minLat,
+                                                   @RequestParam Double minLon,
+                                                   @RequestParam Double maxLat,
+                                                   @RequestParam Double maxLon,
+                                                   @PositiveOrZero @RequestParam Integer zoom) {
+        return eventService.findEventClusters(minLat, minLon, maxLat, maxLon, zoom);
     }
 
     @GetMapping("/events/{id}")
@@ -140,7 +164,7 @@ public class EventController {
                                                HttpServletRequest request) {
         StatisticInDto statisticInDto = new StatisticInDto(SERVICE_ID, request.getRequestURI(), request.getRemoteAddr(),
                 LocalDateTime.now());
-        statisticClient.postHit(statisticInDto);
+        hitRecorder.record(statisticInDto);
         return eventService.findPublishedEventById(id, request);
     }
 }
@@ -0,0 +1,20 @@
+package ru.practicum.explorewithme.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventClusterDto {
+
+    private Double lat;
+    private Double lon;
+    private Long count;
+    private List<Long> eventIds;
+}
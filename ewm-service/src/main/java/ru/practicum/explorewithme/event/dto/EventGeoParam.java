@@ -0,0 +1,24 @@
+package ru.practicum.explorewithme.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+@Data
+@AllArgsConstructor
+public class EventGeoParam {
+
+    private Double lat;
+    private Double lon;
+    private Double radius;
+    private Double minLat;
+    private Double minLon;
+    private Double maxLat;
+    private Double maxLon;
+
+    public boolean isEmpty() {
+        return Stream.of(lat, lon, radius, minLat, minLon, maxLat, maxLon).allMatch(Objects::isNull);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.explorewithme.event.dto;
 
+import ru.practicum.explorewithme.StatisticViews;
 import ru.practicum.explorewithme.category.dto.CategoryMapper;
 import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.event.model.Event;
@@ -11,7 +12,6 @@ import ru.practicum.explorewithme.user.model.User;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
@@ -75,7 +75,7 @@ public class EventMapper {
         return fullDto;
     }
 
-    public static EventFullDto toEventFullDtoWithViews(Event event, Map<Long, Long> eventViews) {
+    public static EventFullDto toEventFullDtoWithViews(Event event, StatisticViews eventViews) {
         EventFullDto fullDto = EventFullDto.builder()
                 .id(event.getId())
                 .annotation(event.getAnnotation())
@@ -92,6 +92,7 @@ public class EventMapper {
                 .state(event.getState().toString())
                 .title(event.getTitle())
                 .views(eventViews.get(event.getId()))
+                .viewsStale(eventViews.isStale() ? true : null)
                 .build();
         if (event.getPublishedOn() != null) {
             fullDto.setPublishedOn(event.getPublishedOn().format(FORMATTER));
@@ -99,13 +100,13 @@ public class EventMapper {
         return fullDto;
     }
 
-    public static List<EventFullDto> toFullDtos(Collection<Event> events, Map<Long, Long> eventViews) {
+    public static List<EventFullDto> toFullDtos(Collection<Event> events, StatisticViews eventViews) {
         return events.stream()
                 .map(event -> toEventFullDtoWithViews(event, eventViews))
                 .collect(Collectors.toList());
     }
 
-    public static EventShortDto toEventShortDto(Event event, Map<Long, Long> eventViews) {
+    public static EventShortDto toEventShortDto(Event event, StatisticViews eventViews) {
         return EventShortDto.builder()
                 .annotation(event.getAnnotation())
                 .category(CategoryMapper.toCategoryDto(event.getCategory()))
@@ -115,10 +116,11 @@ public class EventMapper {
                 .paid(event.getIsPaid())
                 .title(event.getTitle())
                 .views(eventViews.get(event.getId()))
+                .viewsStale(eventViews.isStale() ? true : null)
                 .build();
     }
 
-    public static List<EventShortDto> toShortDtos(List<Event> events, Map<Long, Long> eventViews) {
+    public static List<EventShortDto> toShortDtos(List<Event> events, StatisticViews eventViews) {
         return events.stream()
                 .map(event -> toEventShortDto(event, eventViews))
                 .collect(Collectors.toList());
@@ -1,5 +1,6 @@
 package ru.practicum.explorewithme.event.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,4 +23,6 @@ public class EventShortDto {
     private Boolean paid;
     private String title;
     private Long views;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean viewsStale;
 }
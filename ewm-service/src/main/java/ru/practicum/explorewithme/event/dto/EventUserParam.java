@@ -19,4 +19,6 @@ public class EventUserParam {
     private String sort;
     private Integer from;
     private Integer size;
+    private String cursor;
+    private EventGeoParam geo;
 }
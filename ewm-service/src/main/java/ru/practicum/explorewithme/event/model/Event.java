@@ -51,6 +51,11 @@ public class Event {
     private EventState state;
     @Column(name = "confirmed_requests")
     private Integer confirmedRequests;
+    /**
+     * Копия числа просмотров из сервиса статистики для сортировки в SQL. Пишется только {@code EventViewsSync}.
+     */
+    @Column(insertable = false, updatable = false)
+    private Long views;
     @ManyToMany(mappedBy = "events")
     private List<Compilation> compilations;
 }
@@ -0,0 +1,25 @@
+package ru.practicum.explorewithme.event.model;
+
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Поисковый вектор события, который база поддерживает сама (генерируемый столбец events.search_vector).
+ * Вынесен в отдельную сущность только для чтения, чтобы не загружать его вместе с каждым событием.
+ */
+@Getter
+@Entity
+@Immutable
+@Table(name = "events")
+public class EventSearch {
+
+    @Id
+    private Long id;
+    @Column(name = "search_vector")
+    private String searchVector;
+}
@@ -3,5 +3,7 @@ package ru.practicum.explorewithme.event.model;
 public enum EventSort {
 
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    RELEVANCE,
+    DISTANCE
 }
@@ -0,0 +1,85 @@
+package ru.practicum.explorewithme.event.model;
+
+import lombok.Value;
+
+/**
+ * Область поиска событий: прямоугольник координат и, если задан радиус, круг вокруг точки внутри него.
+ * Точка без радиуса и прямоугольника нужна только для сортировки по расстоянию.
+ */
+@Value
+public class GeoArea {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    Double lat;
+    Double lon;
+    Double radiusKm;
+    double minLat;
+    double minLon;
+    double maxLat;
+    double maxLon;
+
+    /**
+     * Пересечение прямоугольника и прямоугольника, описанного вокруг круга. Любая из частей может
+     * отсутствовать, тогда вместо неё берётся вся поверхность.
+     */
+    public static GeoArea of(Double lat, Double lon, Double radiusKm,
+                             Double minLat, Double minLon, Double maxLat, Double maxLon) {
+        double[] box = {-90, -180, 90, 180};
+        if (radiusKm != null) {
+            double latDelta = radiusKm / KM_PER_DEGREE;
+            box[0] = Math.max(-90, lat - latDelta);
+            box[2] = Math.min(90, lat + latDelta);
+            // у полюса или через 180-й меридиан круг захватывает любые долготы
+            double cos = Math.cos(Math.toRadians(Math.max(Math.abs(box[0]), Math.abs(box[2]))));
+            double lonDelta = cos > 0 ? latDelta / cos : 360;
+            if (box[0] > -90 && box[2] < 90 && lon - lonDelta >= -180 && lon + lonDelta <= 180) {
+                box[1] = lon - lonDelta;
+                box[3] = lon + lonDelta;
+            }
+        }
+        if (minLat != null) {
+            box[0] = Math.max(box[0], minLat);
+            box[1] = Math.max(box[1], minLon);
+            box[2] = Math.min(box[2], maxLat);
+            box[3] = Math.min(box[3], maxLon);
+        }
+        return new GeoArea(lat, lon, radiusKm, box[0], box[1], box[2], box[3]);
+    }
+
+    /**
+     * false, если прямоугольник - вся поверхность и фильтровать по нему не нужно.
+     */
+    public boolean isBounded() {
+        return minLat > -90 || minLon > -180 || maxLat < 90 || maxLon < 180;
+    }
+
+    public boolean contains(double pointLat, double pointLon) {
+        return pointLat >= minLat && pointLat <= maxLat && pointLon >= minLon && pointLon <= maxLon
+                && (radiusKm == null || distanceKm(pointLat, pointLon) <= radiusKm);
+    }
+
+    public double distanceKm(double pointLat, double pointLon) {
+        return distanceKm(lat, lon, pointLat, pointLon);
+    }
+
+    /**
+     * Расстояние, округлённое до миллиметра: ключ сортировки по расстоянию. При равных ключах события
+     * упорядочиваются по id, а точнее миллиметра расстояние всё равно не различает.
+     */
+    public long distanceMillimeters(double pointLat, double pointLon) {
+        return Math.round(distanceKm(pointLat, pointLon) * 1_000_000);
+    }
+
+    /**
+     * Расстояние по большому кругу (формула гаверсинусов), та же формула используется в SQL.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latSin = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double lonSin = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = latSin * latSin
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * lonSin * lonSin;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.explorewithme.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.event.dto.EventClusterDto;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class EventIndexRepository {
+
+    private static final String SCAN_SQL = "SELECT id, category_id, is_paid, event_date, confirmed_requests, " +
+            "participant_limit, views, loc_lat, loc_lon FROM events " +
+            "WHERE state = 'PUBLISHED' AND id >= ? AND id < ?";
+    private static final String CLUSTERS_SQL = "SELECT COUNT(*) AS count, AVG(loc_lat) AS lat, AVG(loc_lon) AS lon, " +
+            "(ARRAY_AGG(id ORDER BY id))[1:?] AS sample FROM events " +
+            "WHERE state = 'PUBLISHED' AND loc_lat >= ? AND (loc_lat < ? OR ? >= 90 AND loc_lat = 90) " +
+            "AND loc_lon >= ? AND (loc_lon < ? OR ? >= 180 AND loc_lon = 180) " +
+            "GROUP BY FLOOR((loc_lat + 90) / ?), FLOOR((loc_lon + 180) / ?) ORDER BY count DESC";
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Границы id опубликованных событий: наименьший и следующий за наибольшим, null если таких событий нет.
+     */
+    public long[] findPublishedIdRange() {
+        return jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM events WHERE state = 'PUBLISHED'", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2) + 1};
+        });
+    }
+
+    /**
+     * Читает опубликованные события с id из [fromId, toId) потоком, не загружая их в память целиком.
+     * PostgreSQL отдаёт строки порциями по fetch size только внутри транзакции.
+     */
+    @Transactional(readOnly = true)
+    public void scanPublished(long fromId, long toId, Consumer<EventIndexRow> consumer) {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SCAN_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(toRow(rs)));
+    }
+
+    /**
+     * Кластеры по сетке с шагом cellDegrees, отсчитанной от -90 широты и -180 долготы. Границы должны
+     * совпадать с границами ячеек, иначе крайние кластеры будут неполными. Верхняя граница не включается,
+     * кроме края карты: события на широте 90 и долготе 180 попадают в крайние кластеры.
+     */
+    public List<EventClusterDto> findClusters(double minLat, double maxLat, double minLon, double maxLon,
+                                              double cellDegrees, int sampleSize) {
+        return jdbcTemplate.query(CLUSTERS_SQL, (rs, rowNum) -> new EventClusterDto(rs.getDouble("lat"),
+                        rs.getDouble("lon"), rs.getLong("count"), toIds(rs.getArray("sample"))),
+                sampleSize, minLat, maxLat, maxLat, minLon, maxLon, maxLon, cellDegrees, cellDegrees);
+    }
+
+    private static List<Long> toIds(Array array) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        for (Object id : (Object[]) array.getArray()) {
+            ids.add(((Number) id).longValue());
+        }
+        return ids;
+    }
+
+    private static EventIndexRow toRow(ResultSet rs) throws SQLException {
+        Integer confirmed = rs.getObject("confirmed_requests", Integer.class);
+        return new EventIndexRow(rs.getLong("id"), true, rs.getLong("category_id"), rs.getBoolean("is_paid"),
+                rs.getTimestamp("event_date").toLocalDateTime(), confirmed, rs.getInt("participant_limit"),
+                rs.getLong("views"), rs.getDouble("loc_lat"), rs.getDouble("loc_lon"));
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.explorewithme.event.repository;
+
+import lombok.Value;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Поля события, по которым работает индекс публичного поиска.
+ */
+@Value
+public class EventIndexRow {
+
+    long id;
+    boolean published;
+    long categoryId;
+    boolean paid;
+    LocalDateTime eventDate;
+    Integer confirmedRequests;
+    int participantLimit;
+    long views;
+    double lat;
+    double lon;
+
+    public static EventIndexRow of(Event event) {
+        return new EventIndexRow(event.getId(), event.getState() == EventState.PUBLISHED,
+                event.getCategory().getId(), event.getIsPaid(), event.getEventDate(), event.getConfirmedRequests(),
+                event.getParticipantLimit(), event.getViews() == null ? 0 : event.getViews(), event.getLat(),
+                event.getLon());
+    }
+}
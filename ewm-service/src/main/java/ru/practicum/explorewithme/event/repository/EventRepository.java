@@ -1,10 +1,8 @@
 package ru.practicum.explorewithme.event.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.explorewithme.event.model.Event;
 import ru.practicum.explorewithme.event.model.EventState;
@@ -13,13 +11,10 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
+public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event>,
+        EventRepositoryCustom {
 
-    @Query(value = "select * " +
-            "from  events " +
-            "where initiator_id = ?1 " +
-            "order by id desc ", nativeQuery = true)
-    Page<Event> findEventsOfUser(Long userId, Pageable pageable);
+    List<Event> findByInitiatorIdAndIdLessThan(Long userId, Long beforeId, Pageable pageable);
 
     Optional<Event> findByIdAndInitiatorId(Long eventId, Long userId);
 
@@ -27,7 +22,6 @@ public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecific
 
     List<Event> findAllByIdIn(List<Long> ids);
 
-    List<Event> findByInitiatorIdAndState(Long initiatorId, EventState state, Pageable pageable);
-
-    List<Event> findByStateAndInitiatorIdIn(EventState state, List<Long> ids, Pageable pageable);
+    List<Event> findByInitiatorIdAndStateAndIdGreaterThan(Long initiatorId, EventState state, Long afterId,
+                                                          Pageable pageable);
 }
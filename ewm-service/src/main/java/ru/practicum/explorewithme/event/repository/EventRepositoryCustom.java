@@ -0,0 +1,16 @@
+package ru.practicum.explorewithme.event.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.explorewithme.event.model.Event;
+
+import java.util.List;
+
+public interface EventRepositoryCustom {
+
+    /**
+     * Страница событий по спецификации без запроса общего количества, который при курсорной пагинации
+     * не нужен и стоит столько же, сколько полный поиск.
+     */
+    List<Event> findSlice(Specification<Event> specification, Pageable pageable);
+}
@@ -0,0 +1,61 @@
+package ru.practicum.explorewithme.event.repository;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+import ru.practicum.explorewithme.event.model.GeoArea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Функции полнотекстового поиска и расстояния PostgreSQL для JPQL и Criteria API. Конфигурация russian должна совпадать
+ * с той, по которой строится events.search_vector, иначе запрос и вектор будут нормализованы по-разному.
+ * Расстояние между точками считается по той же формуле, что {@link GeoArea#distanceKm(double, double, double, double)}.
+ * Подключается свойством spring.jpa.properties.hibernate.metadata_builder_contributor.
+ */
+public class EventSearchFunctions implements MetadataBuilderContributor {
+
+    public static final String MATCH = "event_search_match";
+    public static final String RANK = "event_search_rank";
+    public static final String DISTANCE = "event_distance_km";
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction(MATCH, new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                "(?1 @@ to_tsquery('russian', ?2))"));
+        metadataBuilder.applySqlFunction(RANK, new SQLFunctionTemplate(StandardBasicTypes.FLOAT,
+                "ts_rank_cd(?1, to_tsquery('russian', ?2))"));
+        metadataBuilder.applySqlFunction(DISTANCE, new SQLFunctionTemplate(StandardBasicTypes.DOUBLE,
+                "(2 * " + GeoArea.EARTH_RADIUS_KM + " * asin(least(1, sqrt(power(sin(radians(?3 - ?1) / 2), 2) + " +
+                        "cos(radians(?1)) * cos(radians(?3)) * power(sin(radians(?4 - ?2) / 2), 2)))))"));
+    }
+
+    /**
+     * Превращает текст пользователя в tsquery: каждое слово ищется как префикс, все слова обязательны.
+     * Служебные символы tsquery отбрасываются вместе с остальными разделителями, поэтому запрос всегда корректен.
+     * Если слов нет, возвращает null.
+     */
+    public static String toPrefixQuery(String text) {
+        StringJoiner query = new StringJoiner(" & ");
+        for (String word : words(text)) {
+            query.add(word + ":*");
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    /**
+     * Слова текста в нижнем регистре, разделители и служебные символы отброшены.
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
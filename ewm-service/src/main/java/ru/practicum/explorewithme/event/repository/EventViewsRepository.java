@@ -0,0 +1,65 @@
+package ru.practicum.explorewithme.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.StatisticViews;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class EventViewsRepository {
+
+    private static final String UPDATE_SQL = "UPDATE events SET views = ? WHERE id = ? AND views <> ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Время публикации опубликованных событий из ids, неопубликованных в результате нет.
+     */
+    public Map<Long, LocalDateTime> findPublishedOn(Collection<Long> ids) {
+        Map<Long, LocalDateTime> publishedOn = new HashMap<>();
+        if (ids.isEmpty()) {
+            return publishedOn;
+        }
+        namedJdbcTemplate.query("SELECT id, published_on FROM events WHERE id IN (:ids) AND published_on IS NOT NULL",
+                new MapSqlParameterSource("ids", ids), rs -> {
+                    publishedOn.put(rs.getLong("id"), rs.getTimestamp("published_on").toLocalDateTime());
+                });
+        return publishedOn;
+    }
+
+    /**
+     * Самое раннее время публикации среди опубликованных событий.
+     */
+    public Optional<LocalDateTime> findFirstPublishedOn() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(
+                "SELECT MIN(published_on) FROM events WHERE state = 'PUBLISHED'", LocalDateTime.class));
+    }
+
+    /**
+     * Возвращает число строк, в которых значение действительно изменилось.
+     */
+    public int updateViews(StatisticViews views) {
+        if (views.size() == 0) {
+            return 0;
+        }
+        List<Object[]> args = new ArrayList<>(views.size());
+        views.forEach((id, count) -> args.add(new Object[]{count, id, count}));
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(UPDATE_SQL, args)) {
+            updated += Math.max(count, 0);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,198 @@
+package ru.practicum.explorewithme.event.service;
+
+import ru.practicum.explorewithme.event.dto.EventClusterDto;
+import ru.practicum.explorewithme.event.model.GeoArea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Многоуровневая сетка опубликованных событий для кластеров на карте. Уровень z соответствует масштабу карты z:
+ * сторона ячейки - восьмая часть тайла, 360 / 2^(z+3) градусов по обеим осям. Ячейка хранит упорядоченные id
+ * своих событий и сумму их координат для центра кластера. Кластер - вся ячейка, даже если область захватывает
+ * её частично. Каждое событие лежит в ячейке каждого уровня, поэтому уровней не больше MAX_ZOOM: на более крупных
+ * масштабах событий в области немного, и их проще запросить поиском по области.
+ */
+class EventClusterGrid {
+
+    static final int MAX_ZOOM = 12;
+    /**
+     * Ограничивает размер ответа: если в области больше ячеек, берётся более крупный уровень.
+     */
+    static final int MAX_CELLS = 4096;
+    private static final int CELLS_PER_TILE_SHIFT = 3;
+
+    private final List<Map<Long, Cell>> levels = new ArrayList<>(MAX_ZOOM + 1);
+
+    EventClusterGrid() {
+        for (int level = 0; level <= MAX_ZOOM; level++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    void add(int doc, double lat, double lon) {
+        for (int level = 0; level <= MAX_ZOOM; level++) {
+            levels.get(level).computeIfAbsent(key(level, lat, lon), key -> new Cell()).add(doc, lat, lon);
+        }
+    }
+
+    void remove(int doc, double lat, double lon) {
+        for (int level = 0; level <= MAX_ZOOM; level++) {
+            long key = key(level, lat, lon);
+            Cell cell = levels.get(level).get(key);
+            cell.remove(doc, lat, lon);
+            if (cell.count == 0) {
+                levels.get(level).remove(key);
+            }
+        }
+    }
+
+    /**
+     * Присоединяет сетку, построенную по другим событиям.
+     */
+    void merge(EventClusterGrid other) {
+        for (int level = 0; level <= MAX_ZOOM; level++) {
+            Map<Long, Cell> cells = levels.get(level);
+            other.levels.get(level).forEach((key, cell) -> cells.merge(key, cell, Cell::merge));
+        }
+    }
+
+    List<EventClusterDto> clusters(GeoArea area, int zoom, int sampleSize) {
+        int level = level(area, zoom);
+        long minLat = latIndex(level, area.getMinLat());
+        long maxLat = latIndex(level, area.getMaxLat());
+        long minLon = lonIndex(level, area.getMinLon());
+        long maxLon = lonIndex(level, area.getMaxLon());
+        long lonCells = lonCells(level);
+        Map<Long, Cell> cells = levels.get(level);
+
+        List<EventClusterDto> clusters = new ArrayList<>();
+        if ((maxLat - minLat + 1) * (maxLon - minLon + 1) <= cells.size()) {
+            for (long lat = minLat; lat <= maxLat; lat++) {
+                for (long lon = minLon; lon <= maxLon; lon++) {
+                    Cell cell = cells.get(lat * lonCells + lon);
+                    if (cell != null) {
+                        clusters.add(cell.toDto(sampleSize));
+                    }
+                }
+            }
+        } else {
+            cells.forEach((key, cell) -> {
+                long lat = key / lonCells;
+                long lon = key % lonCells;
+                if (lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon) {
+                    clusters.add(cell.toDto(sampleSize));
+                }
+            });
+        }
+        clusters.sort(Comparator.comparingLong(EventClusterDto::getCount).reversed());
+        return clusters;
+    }
+
+    /**
+     * Уровень не мельче запрошенного масштаба, при котором область покрывают не больше MAX_CELLS ячеек.
+     */
+    static int level(GeoArea area, int zoom) {
+        int level = Math.min(Math.max(zoom, 0), MAX_ZOOM);
+        while (level > 0 && (latIndex(level, area.getMaxLat()) - latIndex(level, area.getMinLat()) + 1)
+                * (lonIndex(level, area.getMaxLon()) - lonIndex(level, area.getMinLon()) + 1) > MAX_CELLS) {
+            level--;
+        }
+        return level;
+    }
+
+    static double cellDegrees(int level) {
+        return 360.0 / (1L << (level + CELLS_PER_TILE_SHIFT));
+    }
+
+    static long latIndex(int level, double lat) {
+        return (long) Math.floor((lat + 90) / cellDegrees(level));
+    }
+
+    static long lonIndex(int level, double lon) {
+        return (long) Math.floor((lon + 180) / cellDegrees(level));
+    }
+
+    /**
+     * Ячеек по долготе на одну больше, чем укладывается в 360 градусов: долгота 180 попадает в отдельную.
+     */
+    private static long lonCells(int level) {
+        return (1L << (level + CELLS_PER_TILE_SHIFT)) + 1;
+    }
+
+    private static long key(int level, double lat, double lon) {
+        return latIndex(level, lat) * lonCells(level) + lonIndex(level, lon);
+    }
+
+    /**
+     * id событий ячейки хранятся по возрастанию, чтобы в пример попадали наименьшие, как в SQL.
+     */
+    private static class Cell {
+        private int[] docs = new int[4];
+        private int count;
+        private double latSum;
+        private double lonSum;
+
+        /**
+         * При построении индекса события читаются по возрастанию id, и вставка сводится к добавлению в конец.
+         */
+        private void add(int doc, double lat, double lon) {
+            if (count == docs.length) {
+                docs = Arrays.copyOf(docs, count * 2);
+            }
+            int at = count == 0 || docs[count - 1] < doc ? count : -Arrays.binarySearch(docs, 0, count, doc) - 1;
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(docs, at, docs, at + 1, count - at);
+            docs[at] = doc;
+            count++;
+            latSum += lat;
+            lonSum += lon;
+        }
+
+        private void remove(int doc, double lat, double lon) {
+            int at = Arrays.binarySearch(docs, 0, count, doc);
+            if (at >= 0) {
+                System.arraycopy(docs, at + 1, docs, at, count - at - 1);
+                count--;
+                latSum -= lat;
+                lonSum -= lon;
+            }
+        }
+
+        /**
+         * Слияние двух упорядоченных списков id. Части индекса строятся по непересекающимся диапазонам id,
+         * поэтому обычно список другой ячейки просто дописывается в конец.
+         */
+        private static Cell merge(Cell cell, Cell other) {
+            int[] merged = new int[Math.max(cell.count + other.count, cell.docs.length)];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < cell.count && j < other.count) {
+                merged[k++] = cell.docs[i] <= other.docs[j] ? cell.docs[i++] : other.docs[j++];
+            }
+            System.arraycopy(cell.docs, i, merged, k, cell.count - i);
+            k += cell.count - i;
+            System.arraycopy(other.docs, j, merged, k, other.count - j);
+            cell.docs = merged;
+            cell.count += other.count;
+            cell.latSum += other.latSum;
+            cell.lonSum += other.lonSum;
+            return cell;
+        }
+
+        private EventClusterDto toDto(int sampleSize) {
+            List<Long> sample = new ArrayList<>(Math.min(sampleSize, count));
+            for (int i = 0; i < count && i < sampleSize; i++) {
+                sample.add((long) docs[i]);
+            }
+            return new EventClusterDto(latSum / count, lonSum / count, (long) count, sample);
+        }
+    }
+}
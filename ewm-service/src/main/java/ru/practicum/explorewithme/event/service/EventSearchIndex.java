@@ -0,0 +1,519 @@
+package ru.practicum.explorewithme.event.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.explorewithme.StatisticViews;
+import ru.practicum.explorewithme.event.dto.EventClusterDto;
+import ru.practicum.explorewithme.event.dto.EventUserParam;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventSort;
+import ru.practicum.explorewithme.event.model.GeoArea;
+import ru.practicum.explorewithme.event.repository.EventIndexRepository;
+import ru.practicum.explorewithme.event.repository.EventIndexRow;
+import ru.practicum.explorewithme.pagination.Cursor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Индекс опубликованных событий в памяти для публичного поиска. Категории, платность и наличие свободных мест
+ * хранятся множествами id событий, поэтому фильтры поиска сводятся к пересечению RoaringBitmap, а база нужна
+ * только чтобы загрузить события итоговой страницы. Для поиска по области события разложены по ячейкам сетки
+ * координат, точные границы и расстояние проверяются у событий из подходящих ячеек. Кластеры для карты
+ * берутся из {@link EventClusterGrid}, которая обновляется вместе с индексом.
+ * При старте индекс строится параллельным потоковым чтением диапазонов id, дальше события переиндексируются
+ * после коммита их изменений. Построение идёт в фоне, и пока индекс не построен, поиск идёт через базу.
+ * Запросы с текстом индекс не обслуживает: текст ищется в базе, со стеммингом и стоп-словами конфигурации
+ * russian или подстрокой, и результат не должен зависеть от того, построен ли индекс.
+ */
+@Slf4j
+@Component
+public class EventSearchIndex {
+
+    private static final double CELL_DEGREES = 0.25;
+    private static final int LON_CELLS = (int) Math.ceil(360 / CELL_DEGREES) + 1;
+    /**
+     * Для большей области объединять ячейки дольше, чем проверить координаты у всех найденных событий.
+     */
+    private static final int MAX_AREA_CELLS = 1024;
+
+    private final EventIndexRepository indexRepository;
+    private final boolean enabled;
+    private final int rebuildThreads;
+    private final Timer searchTimer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * null, пока индекс не построен или если его пришлось отключить.
+     */
+    private Segment segment;
+    /**
+     * Изменения, пришедшие во время построения, применяются к построенному индексу. После построения null.
+     */
+    private List<Consumer<Segment>> pending = new ArrayList<>();
+
+    public EventSearchIndex(EventIndexRepository indexRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${ewm.search.index.enabled:true}") boolean enabled,
+                            @Value("${ewm.search.index.rebuild-threads:0}") int rebuildThreads) {
+        this.indexRepository = indexRepository;
+        this.enabled = enabled;
+        this.rebuildThreads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        this.searchTimer = Timer.builder("ewm.search.index.search").register(meterRegistry);
+        Gauge.builder("ewm.search.index.events", this, EventSearchIndex::size).register(meterRegistry);
+    }
+
+    /**
+     * Индекс строится в отдельном потоке, чтобы не задерживать старт приложения, поиск тем временем идёт
+     * через базу.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::rebuildNow, "event-search-index-rebuild");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void rebuildNow() {
+        long started = System.nanoTime();
+        Segment built;
+        try {
+            built = build();
+        } catch (RuntimeException e) {
+            disable("Не удалось построить индекс поиска событий", e);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending == null) {
+                return;
+            }
+            pending.forEach(update -> update.accept(built));
+            pending = null;
+            segment = built;
+        } catch (RuntimeException e) {
+            disable("Не удалось применить изменения к индексу поиска событий", e);
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс поиска построен: событий {}, за {} мс", built.published.getCardinality(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Переиндексирует событие после коммита текущей транзакции: опубликованное добавляется или заменяется,
+     * остальные убираются из индекса.
+     */
+    public void indexAfterCommit(Event event) {
+        if (!enabled) {
+            return;
+        }
+        EventIndexRow row = EventIndexRow.of(event);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(segment -> segment.put(row));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(segment -> segment.put(row));
+            }
+        });
+    }
+
+    /**
+     * Просмотры для сортировки, те же, что записаны в events.views.
+     */
+    public void updateViews(StatisticViews views) {
+        if (enabled && views.size() > 0) {
+            apply(segment -> views.forEach(segment::setViews));
+        }
+    }
+
+    /**
+     * Id не больше limit событий в порядке сортировки: после курсора after, если он задан, и начиная
+     * с offset. Если индекс не построен или в запросе есть текст, результата нет.
+     */
+    public Optional<List<Long>> search(EventUserParam param, LocalDateTime rangeStart, EventSort sort,
+                                       GeoArea area, Cursor after, int offset, int limit) {
+        if (param.getText() != null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            if (segment == null) {
+                return Optional.empty();
+            }
+            return Optional.of(searchTimer.record(() ->
+                    segment.search(param, rangeStart, sort, area, after, offset, limit)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Кластеры событий в области на масштабе карты zoom. Если индекс не построен, результата нет.
+     */
+    public Optional<List<EventClusterDto>> clusters(GeoArea area, int zoom, int sampleSize) {
+        lock.readLock().lock();
+        try {
+            return segment == null
+                    ? Optional.empty()
+                    : Optional.of(segment.grid.clusters(area, zoom, sampleSize));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double size() {
+        lock.readLock().lock();
+        try {
+            return segment == null ? 0 : segment.published.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Segment build() {
+        long[] range = indexRepository.findPublishedIdRange();
+        if (range == null) {
+            return new Segment();
+        }
+        toDoc(range[1] - 1);
+        int parts = (int) Math.min(rebuildThreads, range[1] - range[0]);
+        long step = (range[1] - range[0] + parts - 1) / parts;
+        ExecutorService executor = Executors.newFixedThreadPool(parts);
+        try {
+            List<CompletableFuture<Segment>> futures = new ArrayList<>(parts);
+            for (long from = range[0]; from < range[1]; from += step) {
+                long partFrom = from;
+                long partTo = Math.min(from + step, range[1]);
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    Segment part = new Segment();
+                    indexRepository.scanPublished(partFrom, partTo, part::put);
+                    return part;
+                }, executor));
+            }
+            Segment merged = futures.get(0).join();
+            for (int i = 1; i < futures.size(); i++) {
+                merged.merge(futures.get(i).join());
+            }
+            return merged;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void apply(Consumer<Segment> update) {
+        lock.writeLock().lock();
+        try {
+            if (segment != null) {
+                update.accept(segment);
+            } else if (pending != null) {
+                pending.add(update);
+            }
+        } catch (RuntimeException e) {
+            disable("Не удалось обновить индекс поиска событий", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * После ошибки индекс может не совпадать с базой, поэтому он выключается до перезапуска.
+     */
+    private void disable(String message, RuntimeException e) {
+        lock.writeLock().lock();
+        try {
+            segment = null;
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.warn("{}, поиск идёт через базу: {}", message, e.getMessage());
+    }
+
+    private static int toDoc(long id) {
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("id события " + id + " не помещается в индекс");
+        }
+        return (int) id;
+    }
+
+    private static class Segment {
+        private final Map<Integer, Doc> docs = new HashMap<>();
+        private final Map<Long, RoaringBitmap> categories = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> cells = new HashMap<>();
+        private final EventClusterGrid grid = new EventClusterGrid();
+        private final RoaringBitmap published = new RoaringBitmap();
+        private final RoaringBitmap paid = new RoaringBitmap();
+        private final RoaringBitmap available = new RoaringBitmap();
+
+        private void put(EventIndexRow row) {
+            int doc = toDoc(row.getId());
+            remove(doc);
+            if (!row.isPublished()) {
+                return;
+            }
+            docs.put(doc, new Doc(row.getCategoryId(), row.getEventDate(), row.getViews(), row.getLat(),
+                    row.getLon()));
+            categories.computeIfAbsent(row.getCategoryId(), category -> new RoaringBitmap()).add(doc);
+            cells.computeIfAbsent(cell(row.getLat(), row.getLon()), cell -> new RoaringBitmap()).add(doc);
+            grid.add(doc, row.getLat(), row.getLon());
+            published.add(doc);
+            if (row.isPaid()) {
+                paid.add(doc);
+            }
+            // как в SQL: confirmed_requests < participant_limit, NULL не подходит
+            if (row.getConfirmedRequests() != null && row.getConfirmedRequests() < row.getParticipantLimit()) {
+                available.add(doc);
+            }
+        }
+
+        private void remove(int doc) {
+            Doc removed = docs.remove(doc);
+            if (removed == null) {
+                return;
+            }
+            RoaringBitmap category = categories.get(removed.categoryId);
+            category.remove(doc);
+            if (category.isEmpty()) {
+                categories.remove(removed.categoryId);
+            }
+            int cellKey = cell(removed.lat, removed.lon);
+            RoaringBitmap cell = cells.get(cellKey);
+            cell.remove(doc);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+            grid.remove(doc, removed.lat, removed.lon);
+            published.remove(doc);
+            paid.remove(doc);
+            available.remove(doc);
+        }
+
+        private void setViews(long id, long views) {
+            Doc doc = id > Integer.MAX_VALUE ? null : docs.get((int) id);
+            if (doc != null) {
+                doc.views = views;
+            }
+        }
+
+        /**
+         * Присоединяет часть, построенную по другому диапазону id: множества событий частей не пересекаются.
+         */
+        private void merge(Segment other) {
+            docs.putAll(other.docs);
+            other.categories.forEach((category, bitmap) ->
+                    categories.computeIfAbsent(category, id -> new RoaringBitmap()).or(bitmap));
+            other.cells.forEach((cell, bitmap) -> cells.computeIfAbsent(cell, key -> new RoaringBitmap()).or(bitmap));
+            grid.merge(other.grid);
+            published.or(other.published);
+            paid.or(other.paid);
+            available.or(other.available);
+        }
+
+        private List<Long> search(EventUserParam param, LocalDateTime rangeStart, EventSort sort, GeoArea area,
+                                  Cursor after, int offset, int limit) {
+            RoaringBitmap found = published.clone();
+            if (param.getCategories() != null) {
+                RoaringBitmap selected = new RoaringBitmap();
+                for (Long category : param.getCategories()) {
+                    RoaringBitmap bitmap = categories.get(category);
+                    if (bitmap != null) {
+                        selected.or(bitmap);
+                    }
+                }
+                found.and(selected);
+            }
+            if (param.getPaid() != null) {
+                if (param.getPaid()) {
+                    found.and(paid);
+                } else {
+                    found.andNot(paid);
+                }
+            }
+            if (param.getOnlyAvailable() != null) {
+                found.and(available);
+            }
+            if (area != null && area.isBounded()) {
+                RoaringBitmap inCells = cellsOf(area);
+                if (inCells != null) {
+                    found.and(inCells);
+                }
+            }
+
+            // без ключа события идут по возрастанию id, в этом порядке их и перебирает итератор;
+            // без текста ранжировать не по чему, и релевантность - тот же порядок по id
+            boolean keyed = sort != null && sort != EventSort.RELEVANCE;
+            long afterKey = after == null || !keyed ? 0 : cursorKey(after, sort);
+            int[] ids = new int[found.getCardinality()];
+            long[] keys = new long[keyed ? ids.length : 0];
+            int count = 0;
+            for (IntIterator it = found.getIntIterator(); it.hasNext(); ) {
+                int doc = it.next();
+                Doc indexed = docs.get(doc);
+                if (indexed.eventDate.isAfter(rangeStart)
+                        && (param.getRangeEnd() == null || indexed.eventDate.isBefore(param.getRangeEnd()))
+                        && (area == null || area.contains(indexed.lat, indexed.lon))) {
+                    long key = keyed ? key(doc, sort, area) : 0;
+                    if (after == null || key > afterKey || key == afterKey && doc > after.getId()) {
+                        if (keyed) {
+                            keys[count] = key;
+                        }
+                        ids[count++] = doc;
+                    }
+                }
+            }
+            int to = (int) Math.min(count, (long) offset + limit);
+            List<Long> page = new ArrayList<>(Math.max(to - offset, 0));
+            if (offset >= count) {
+                return page;
+            }
+            if (!keyed) {
+                for (int i = offset; i < to; i++) {
+                    page.add((long) ids[i]);
+                }
+                return page;
+            }
+            for (int doc : top(ids, keys, count, to)) {
+                page.add((long) doc);
+            }
+            return page.subList(offset, to);
+        }
+
+        /**
+         * Ключ сортировки, события упорядочиваются по возрастанию ключа, при равенстве по id.
+         */
+        private long key(int id, EventSort sort, GeoArea area) {
+            Doc doc = docs.get(id);
+            switch (sort) {
+                case EVENT_DATE:
+                    return epochMicros(doc.eventDate);
+                case VIEWS:
+                    return -doc.views;
+                case DISTANCE:
+                    return area.distanceMillimeters(doc.lat, doc.lon);
+                default:
+                    throw new IllegalArgumentException("Неизвестная сортировка " + sort);
+            }
+        }
+
+        /**
+         * Ключ сортировки последнего события страницы по значению из курсора. Курсора по релевантности не бывает.
+         */
+        private static long cursorKey(Cursor after, EventSort sort) {
+            switch (sort) {
+                case EVENT_DATE:
+                    return epochMicros(after.dateKey());
+                case VIEWS:
+                    return -after.longKey();
+                case DISTANCE:
+                    return after.longKey();
+                default:
+                    throw new IllegalArgumentException("Курсор не поддерживается для сортировки " + sort);
+            }
+        }
+
+        private static long epochMicros(LocalDateTime dateTime) {
+            return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1000;
+        }
+
+        /**
+         * Первые limit id по ключу без сортировки всех найденных: в куче держится limit лучших.
+         */
+        private static int[] top(int[] ids, long[] keys, int count, int limit) {
+            Comparator<Integer> order = Comparator.<Integer>comparingLong(i -> keys[i]).thenComparingInt(i -> ids[i]);
+            PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, order.reversed());
+            for (int i = 0; i < count; i++) {
+                heap.add(i);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            int[] top = new int[heap.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = ids[heap.poll()];
+            }
+            return top;
+        }
+
+        /**
+         * События из ячеек, пересекающих прямоугольник области, или null, если ячеек слишком много.
+         */
+        private RoaringBitmap cellsOf(GeoArea area) {
+            int minLatCell = latCell(area.getMinLat());
+            int maxLatCell = latCell(area.getMaxLat());
+            int minLonCell = lonCell(area.getMinLon());
+            int maxLonCell = lonCell(area.getMaxLon());
+            if ((long) (maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1) > MAX_AREA_CELLS) {
+                return null;
+            }
+            RoaringBitmap found = new RoaringBitmap();
+            for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (int lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    RoaringBitmap cell = cells.get(latCell * LON_CELLS + lonCell);
+                    if (cell != null) {
+                        found.or(cell);
+                    }
+                }
+            }
+            return found;
+        }
+
+        private static int cell(double lat, double lon) {
+            return latCell(lat) * LON_CELLS + lonCell(lon);
+        }
+
+        private static int latCell(double lat) {
+            return (int) Math.floor((lat + 90) / CELL_DEGREES);
+        }
+
+        private static int lonCell(double lon) {
+            return (int) Math.floor((lon + 180) / CELL_DEGREES);
+        }
+    }
+
+    private static class Doc {
+        private final long categoryId;
+        private final LocalDateTime eventDate;
+        private long views;
+        private final double lat;
+        private final double lon;
+
+        private Doc(long categoryId, LocalDateTime eventDate, long views, double lat, double lon) {
+            this.categoryId = categoryId;
+            this.eventDate = eventDate;
+            this.views = views;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+}
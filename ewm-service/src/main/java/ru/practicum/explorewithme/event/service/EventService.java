@@ -2,6 +2,7 @@ package ru.practicum.explorewithme.event.service;
 
 import ru.practicum.explorewithme.event.dto.*;
 import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.pagination.CursorPage;
 import ru.practicum.explorewithme.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.explorewithme.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.explorewithme.request.dto.ParticipationRequestDto;
@@ -11,7 +12,7 @@ import java.util.List;
 
 public interface EventService {
 
-    List<EventShortDto> findEventsOfUser(Long userId, Integer from, Integer size);
+    CursorPage<EventShortDto> findEventsOfUser(Long userId, String cursor, Integer from, Integer size);
 
     EventFullDto addEvent(Long userId, NewEventDto newEventDto);
 
@@ -24,7 +25,9 @@ public interface EventService {
     List<EventFullDto> findEventsByAdmin(String title, Boolean paid);
 //    List<EventFullDto> findEventsByAdmin(EventAdminParam eventAdminParam);
 
-    List<EventShortDto> findEventsByPublic(EventUserParam eventUserParam, HttpServletRequest request);
+    CursorPage<EventShortDto> findEventsByPublic(EventUserParam eventUserParam, HttpServletRequest request);
+
+    List<EventClusterDto> findEventClusters(Double minLat, Double minLon, Double maxLat, Double maxLon, Integer zoom);
 
     EventFullDto findPublishedEventById(Long eventId, HttpServletRequest request);
 
@@ -34,7 +37,9 @@ public interface EventService {
 
     List<Event> findAllByIds(List<Long> ids);
 
-    List<EventFullDto> findEventsBySubscriptionOfUser(Long userId, Long followerId, Integer from, Integer size);
+    CursorPage<EventFullDto> findEventsBySubscriptionOfUser(Long userId, Long followerId, String cursor, Integer from,
+                                                            Integer size);
 
-    List<EventShortDto> findEventsByAllSubscriptions(Long followerId, String sort, Integer from, Integer size);
+    CursorPage<EventShortDto> findEventsByAllSubscriptions(Long followerId, String sort, String cursor, Integer from,
+                                                           Integer size);
 }
@@ -2,21 +2,28 @@ package ru.practicum.explorewithme.event.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.StatisticViews;
 import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.category.service.CategoryService;
 import ru.practicum.explorewithme.event.dto.*;
 import ru.practicum.explorewithme.event.model.*;
+import ru.practicum.explorewithme.event.repository.EventIndexRepository;
 import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.repository.EventSearchFunctions;
 import ru.practicum.explorewithme.exception.DataConflictException;
 import ru.practicum.explorewithme.exception.DataValidationException;
 import ru.practicum.explorewithme.exception.EventNotFoundException;
 import ru.practicum.explorewithme.exception.InvalidRequestException;
+import ru.practicum.explorewithme.pagination.Cursor;
+import ru.practicum.explorewithme.pagination.CursorPage;
+import ru.practicum.explorewithme.pagination.Keyset;
+import ru.practicum.explorewithme.pagination.OffsetPageRequest;
 import ru.practicum.explorewithme.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.explorewithme.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.explorewithme.request.dto.ParticipationRequestDto;
@@ -28,13 +35,20 @@ import ru.practicum.explorewithme.user.model.User;
 import ru.practicum.explorewithme.user.service.UserService;
 
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import javax.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
@@ -45,23 +59,34 @@ import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
 @RequiredArgsConstructor
 public class EventServiceImpl implements EventService {
 
+    /**
+     * Порядок событий пользователя: от новых к старым по id.
+     */
+    private static final String NEWEST_FIRST = "ID_DESC";
+    private static final double MILLIMETERS_PER_KM = 1_000_000;
+
     private final EventRepository eventRepository;
     private final UserService userService;
     private final CategoryService categoryService;
     private final EventStatService eventStatService;
     private final RequestRepository requestRepository;
+    private final EventSearchIndex searchIndex;
+    private final EventIndexRepository indexRepository;
+
+    @Value("${ewm.search.full-text:false}")
+    private boolean fullTextSearch;
+    @Value("${ewm.map.cluster-sample-size:5}")
+    private int clusterSampleSize;
 
     @Override
-    public List<EventShortDto> findEventsOfUser(Long userId, Integer from, Integer size) {
-        Map<Long, Long> views;
-        List<EventShortDto> userEvents;
+    public CursorPage<EventShortDto> findEventsOfUser(Long userId, String cursor, Integer from, Integer size) {
         User user = userService.findUserById(userId);
-        Pageable pageable = PageRequest.of(from / size, size);
-        List<Event> events = eventRepository.findEventsOfUser(userId, pageable).getContent();
-        views = eventStatService.getEventsViews(events.stream().map(Event::getId).collect(Collectors.toList()));
-        userEvents = EventMapper.toShortDtos(events, views);
+        long beforeId = cursor == null ? Long.MAX_VALUE : Cursor.decode(cursor, NEWEST_FIRST).getId();
+        Pageable pageable = OffsetPageRequest.of(cursor == null ? from : 0, size + 1, Sort.by("id").descending());
+        List<Event> events = eventRepository.findByInitiatorIdAndIdLessThan(userId, beforeId, pageable);
         log.info("Выполнен поиск событий для пользователя с id {}", userId);
-        return userEvents;
+        return CursorPage.of(events, size, event -> Cursor.of(NEWEST_FIRST, null, event.getId()),
+                this::toShortDtos);
     }
 
     @Override
@@ -80,17 +105,17 @@ public class EventServiceImpl implements EventService {
 
     @Override
     public EventFullDto findUserEventById(Long userId, Long eventId) {
+        CompletableFuture<StatisticViews> views = eventStatService.getEventsViewsAsync(List.of(eventId));
         Event event = findEventByIdAndInitiatorId(userId, eventId);
-        Map<Long, Long> views = eventStatService.getEventsViews(List.of(eventId));
         log.info("Выполнен поиск события с id {} и id пользователя {}", eventId, userId);
-        return EventMapper.toEventFullDtoWithViews(event, views);
+        return EventMapper.toEventFullDtoWithViews(event, eventStatService.join(views));
     }
 
     @Transactional
     @Override
     public EventFullDto userUpdateEvent(Long userId, Long eventId, UpdateEventUserRequest eventUpdate) {
         Event updated;
-        Map<Long, Long> views;
+        StatisticViews views;
         Category category;
         User user = userService.findUserById(userId);
         Event oldEvent = findEventByIdAndInitiatorId(userId, eventId);
@@ -142,7 +167,7 @@ public class EventServiceImpl implements EventService {
     @Transactional
     public EventFullDto adminUpdateEvent(Long eventId, UpdateEventAdminRequest eventUpdate) {
         Event updated;
-        Map<Long, Long> views;
+        StatisticViews views;
         Category category;
         Event oldEvent = findEventById(eventId);
 
@@ -181,6 +206,7 @@ public class EventServiceImpl implements EventService {
             oldEvent.setTitle(eventUpdate.getTitle());
         }
         updated = eventRepository.save(oldEvent);
+        searchIndex.indexAfterCommit(updated);
         views = eventStatService.getEventsViews(List.of(eventId));
         log.info("Событие с id {} обновлено администратором", eventId);
         return EventMapper.toEventFullDtoWithViews(updated, views);
@@ -188,7 +214,7 @@ public class EventServiceImpl implements EventService {
     @Override
     public List<EventFullDto> findEventsByAdmin(String title, Boolean paid) {
         List<Event> events;
-        Map<Long, Long> views;
+        StatisticViews views;
         Specification<Event> specification = ((root, query, criteriaBuilder) -> {
 
             var titleCondition = Objects.isNull(title)
@@ -207,18 +233,48 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    public List<EventShortDto> findEventsByPublic(EventUserParam eventUserParam, HttpServletRequest request) {
+    public CursorPage<EventShortDto> findEventsByPublic(EventUserParam eventUserParam, HttpServletRequest request) {
         Sort sort;
         List<Event> events;
-        Map<Long, Long> views;
         sort = getEventSort(eventUserParam.getSort());
-        Pageable pageable = PageRequest.of(eventUserParam.getFrom() / eventUserParam.getSize(),
-                eventUserParam.getSize(), sort);
+        EventSort eventSort = eventUserParam.getSort() == null ? null : EventSort.valueOf(eventUserParam.getSort());
+        GeoArea area = toGeoArea(eventUserParam.getGeo(), eventSort);
+        boolean byDistance = eventSort == EventSort.DISTANCE;
+        String searchQuery = fullTextSearch && eventUserParam.getText() != null
+                ? EventSearchFunctions.toPrefixQuery(eventUserParam.getText())
+                : null;
+        boolean byRelevance = searchQuery != null && EventSort.RELEVANCE.name().equals(eventUserParam.getSort());
+        // ранг зависит от текста запроса и в событии не хранится, продолжить такую выдачу курсором нельзя
+        boolean ranked = eventSort == EventSort.RELEVANCE && eventUserParam.getText() != null;
+        if (ranked && eventUserParam.getCursor() != null) {
+            throw new InvalidRequestException("Выдачу по релевантности нельзя продолжить курсором, используйте from");
+        }
+        Cursor after = eventUserParam.getCursor() == null ? null
+                : Cursor.decode(eventUserParam.getCursor(), cursorOrder(eventSort));
+        int offset = after == null ? eventUserParam.getFrom() : 0;
+        Pageable pageable = OffsetPageRequest.of(offset, eventUserParam.getSize() + 1,
+                byRelevance || byDistance ? Sort.unsorted() : sort);
         LocalDateTime checkedRangeStart = validateRangeTime(eventUserParam.getRangeStart(), eventUserParam.getRangeEnd());
+        if (fullTextSearch && eventUserParam.getText() != null && searchQuery == null) {
+            // в тексте нет ни одного слова: искать нечего, а без условия на текст выдача была бы всеми событиями
+            log.info("Текст публичного поиска событий не содержит слов, выдача пуста");
+            return new CursorPage<>(new ArrayList<>(), null);
+        }
         Specification<Event> specification = ((root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
             predicates.add(criteriaBuilder.equal(root.get("state"), EventState.PUBLISHED));
-            if (eventUserParam.getText() != null) {
+            if (searchQuery != null) {
+                Root<EventSearch> search = query.from(EventSearch.class);
+                Expression<String> tsQuery = criteriaBuilder.literal(searchQuery);
+                predicates.add(criteriaBuilder.equal(search.get("id"), root.get("id")));
+                predicates.add(criteriaBuilder.isTrue(criteriaBuilder.function(EventSearchFunctions.MATCH,
+                        Boolean.class, search.get("searchVector"), tsQuery)));
+                // в запрос количества сортировка не нужна, его результат - Long
+                if (byRelevance && !Long.class.equals(query.getResultType())) {
+                    query.orderBy(criteriaBuilder.desc(criteriaBuilder.function(EventSearchFunctions.RANK,
+                            Float.class, search.get("searchVector"), tsQuery)), criteriaBuilder.asc(root.get("id")));
+                }
+            } else if (eventUserParam.getText() != null && !fullTextSearch) {
                 predicates.add(criteriaBuilder.or(criteriaBuilder.like(criteriaBuilder.lower(root.get("annotation")),
                                 "%" + eventUserParam.getText().toLowerCase() + "%"),
                         criteriaBuilder.like(criteriaBuilder.lower(root.get("description")),
@@ -241,22 +297,45 @@ public class EventServiceImpl implements EventService {
             if (eventUserParam.getOnlyAvailable() != null) {
                 predicates.add(criteriaBuilder.lessThan(root.get("confirmedRequests"), root.get("participantLimit")));
             }
+            if (after != null && !byDistance) {
+                predicates.add(afterCursor(eventSort, after, root, criteriaBuilder));
+            }
+            if (area != null) {
+                predicates.addAll(geoPredicates(area, byDistance, after, root, query, criteriaBuilder));
+            }
             return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
         }
         );
-        events = eventRepository.findAll(specification, pageable).getContent();
-        views = eventStatService.getEventsViews(events.stream().map(Event::getId).collect(Collectors.toList()));
+        // запросы с текстом индекс не обслуживает, они всегда идут в базу
+        Optional<List<Long>> indexed = searchIndex.search(eventUserParam, checkedRangeStart, eventSort, area,
+                after, offset, pageable.getPageSize());
+        if (indexed.isPresent()) {
+            events = findAllInOrder(indexed.get());
+        } else {
+            events = eventRepository.findSlice(specification, pageable);
+        }
         log.info("Выполнен публичный поиск опубликованных событий");
-        return EventMapper.toShortDtos(events, views);
+        return CursorPage.of(events, eventUserParam.getSize(),
+                event -> ranked ? null : eventCursor(eventSort, area, event), this::toShortDtos);
+    }
+
+    @Override
+    public List<EventClusterDto> findEventClusters(Double minLat, Double minLon, Double maxLat, Double maxLon,
+                                                   Integer zoom) {
+        GeoArea area = toGeoArea(new EventGeoParam(null, null, null, minLat, minLon, maxLat, maxLon), null);
+        List<EventClusterDto> clusters = searchIndex.clusters(area, zoom, clusterSampleSize)
+                .orElseGet(() -> findClustersInDatabase(area, zoom));
+        log.info("Выполнен поиск кластеров опубликованных событий на масштабе {}", zoom);
+        return clusters;
     }
 
     @Override
     public EventFullDto findPublishedEventById(Long eventId, HttpServletRequest request) {
-        Map<Long, Long> views = eventStatService.getEventsViews(List.of(eventId));
+        CompletableFuture<StatisticViews> views = eventStatService.getEventsViewsAsync(List.of(eventId));
         Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
                 .orElseThrow(() -> new EventNotFoundException("Опубликованного события с указанным id не найдено"));
         log.info("Выполнен публичный поиск опубликованного события с id {}", eventId);
-        return EventMapper.toEventFullDtoWithViews(event, views);
+        return EventMapper.toEventFullDtoWithViews(event, eventStatService.join(views));
     }
 
     @Override
@@ -316,6 +395,7 @@ public class EventServiceImpl implements EventService {
                 rejected.addAll(requests);
         }
         eventRepository.save(event);
+        searchIndex.indexAfterCommit(event);
         requestRepository.saveAll(requests);
         EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult(RequestMapper.toDtos(confirmed),
                 RequestMapper.toDtos(rejected));
@@ -329,9 +409,9 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    public List<EventFullDto> findEventsBySubscriptionOfUser(Long userId, Long followerId, Integer from, Integer size) {
-        Map<Long, Long> views;
-        Pageable pageable = PageRequest.of(from / size, size);
+    public CursorPage<EventFullDto> findEventsBySubscriptionOfUser(Long userId, Long followerId, String cursor,
+                                                                   Integer from, Integer size) {
+        Pageable pageable = OffsetPageRequest.of(cursor == null ? from : 0, size + 1, Sort.by("id"));
         if (userId.equals(followerId)) {
             throw new DataConflictException("Пользователь не может быть подписан на себя");
         }
@@ -341,34 +421,171 @@ public class EventServiceImpl implements EventService {
             throw new InvalidRequestException("Пользователь с id " + followerId + " не подписан на пользователя с id " +
                     userId);
         }
-        List<Event> events = eventRepository.findByInitiatorIdAndState(userId, EventState.PUBLISHED, pageable);
-        views = eventStatService.getEventsViews(events.stream().map(Event::getId).collect(Collectors.toList()));
+        List<Event> events = eventRepository.findByInitiatorIdAndStateAndIdGreaterThan(userId, EventState.PUBLISHED,
+                Cursor.afterId(cursor), pageable);
         log.info("Найдены события пользователя id {} для подписчика id {}", userId, followerId);
-        return EventMapper.toFullDtos(events, views);
+        return CursorPage.of(events, size, event -> Cursor.of(event.getId()), page -> EventMapper.toFullDtos(page,
+                eventStatService.getEventsViews(page.stream().map(Event::getId).collect(Collectors.toList()))));
     }
 
     @Override
-    public List<EventShortDto> findEventsByAllSubscriptions(Long followerId, String sort, Integer from, Integer size) {
-        Map<Long, Long> views;
-        Pageable pageable;
+    public CursorPage<EventShortDto> findEventsByAllSubscriptions(Long followerId, String sort, String cursor,
+                                                                  Integer from, Integer size) {
         SubscriptionSort subSort = SubscriptionSort.valueOf(sort);
-        if (subSort == SubscriptionSort.NEW) {
-            pageable = PageRequest.of(from / size, size, Sort.by("eventDate").descending());
-        } else {
-            pageable = PageRequest.of(from / size, size, Sort.by("eventDate"));
-        }
+        boolean newest = subSort == SubscriptionSort.NEW;
+        Cursor after = cursor == null ? null : Cursor.decode(cursor, subSort.name());
+        // при равной дате порядок по id, иначе границу курсора нельзя задать однозначно
+        Sort eventDate = newest ? Sort.by("eventDate").descending() : Sort.by("eventDate");
+        Pageable pageable = OffsetPageRequest.of(after == null ? from : 0, size + 1, eventDate.and(Sort.by("id")));
 
         User follower = userService.findUserById(followerId);
         if (follower.getFollowees().isEmpty()) {
-            return new ArrayList<>();
+            return new CursorPage<>(new ArrayList<>(), null);
         }
         List<Long> folowees = follower.getFollowees().stream().map(User::getId).collect(Collectors.toList());
-        List<Event> events = eventRepository.findByStateAndInitiatorIdIn(EventState.PUBLISHED, folowees, pageable);
-        views = eventStatService.getEventsViews(events.stream().map(Event::getId).collect(Collectors.toList()));
+        Specification<Event> specification = (root, query, criteriaBuilder) -> {
+            Predicate predicate = criteriaBuilder.and(criteriaBuilder.equal(root.get("state"), EventState.PUBLISHED),
+                    root.get("initiator").get("id").in(folowees));
+            return after == null ? predicate : criteriaBuilder.and(predicate, Keyset.after(criteriaBuilder,
+                    root.get("eventDate"), after.dateKey(), newest, root.get("id"), after.getId()));
+        };
+        List<Event> events = eventRepository.findSlice(specification, pageable);
         log.info("Найдены события по подпискам пользователя с id {}", followerId);
+        return CursorPage.of(events, size, event -> Cursor.of(subSort.name(), event.getEventDate(), event.getId()),
+                this::toShortDtos);
+    }
+
+    /**
+     * Прямоугольник сужает поиск по индексу на (loc_lat, loc_lon), расстояние проверяется уже для его строк.
+     */
+    private List<Predicate> geoPredicates(GeoArea area, boolean byDistance, Cursor after, Root<Event> root,
+                                          CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (area.isBounded()) {
+            predicates.add(criteriaBuilder.ge(root.get("lat"), area.getMinLat()));
+            predicates.add(criteriaBuilder.le(root.get("lat"), area.getMaxLat()));
+            predicates.add(criteriaBuilder.ge(root.get("lon"), area.getMinLon()));
+            predicates.add(criteriaBuilder.le(root.get("lon"), area.getMaxLon()));
+        }
+        if (area.getLat() == null) {
+            return predicates;
+        }
+        Expression<Double> distance = criteriaBuilder.function(EventSearchFunctions.DISTANCE, Double.class,
+                criteriaBuilder.literal(area.getLat()), criteriaBuilder.literal(area.getLon()),
+                root.get("lat"), root.get("lon"));
+        if (area.getRadiusKm() != null) {
+            predicates.add(criteriaBuilder.le(distance, area.getRadiusKm()));
+        }
+        if (!byDistance) {
+            return predicates;
+        }
+        // в миллиметрах, как ключ индекса и курсора: при равных ключах события упорядочены по id
+        Expression<Double> millimeters = criteriaBuilder.function("round", Double.class,
+                criteriaBuilder.prod(distance, MILLIMETERS_PER_KM));
+        if (after != null) {
+            predicates.add(Keyset.after(criteriaBuilder, millimeters, (double) after.longKey(), false,
+                    root.get("id"), after.getId()));
+        }
+        // в запрос количества сортировка не нужна, его результат - Long
+        if (!Long.class.equals(query.getResultType())) {
+            query.orderBy(criteriaBuilder.asc(millimeters), criteriaBuilder.asc(root.get("id")));
+        }
+        return predicates;
+    }
+
+    /**
+     * События после курсора в порядке getEventSort: по ключу сортировки, при равенстве по возрастанию id.
+     */
+    private Predicate afterCursor(EventSort sort, Cursor after, Root<Event> root, CriteriaBuilder criteriaBuilder) {
+        if (sort == EventSort.EVENT_DATE) {
+            return Keyset.after(criteriaBuilder, root.get("eventDate"), after.dateKey(), false,
+                    root.get("id"), after.getId());
+        }
+        if (sort == EventSort.VIEWS) {
+            return Keyset.after(criteriaBuilder, root.get("views"), after.longKey(), true,
+                    root.get("id"), after.getId());
+        }
+        return criteriaBuilder.greaterThan(root.get("id"), after.getId());
+    }
+
+    private static String cursorOrder(EventSort sort) {
+        return sort == null || sort == EventSort.RELEVANCE ? Cursor.BY_ID : sort.name();
+    }
+
+    private static Cursor eventCursor(EventSort sort, GeoArea area, Event event) {
+        String order = cursorOrder(sort);
+        if (sort == EventSort.EVENT_DATE) {
+            return Cursor.of(order, event.getEventDate(), event.getId());
+        }
+        if (sort == EventSort.VIEWS) {
+            return Cursor.of(order, event.getViews() == null ? 0 : event.getViews(), event.getId());
+        }
+        if (sort == EventSort.DISTANCE) {
+            return Cursor.of(order, area.distanceMillimeters(event.getLat(), event.getLon()), event.getId());
+        }
+        return Cursor.of(event.getId());
+    }
+
+    private List<EventShortDto> toShortDtos(List<Event> events) {
+        StatisticViews views = eventStatService.getEventsViews(events.stream().map(Event::getId)
+                .collect(Collectors.toList()));
         return EventMapper.toShortDtos(events, views);
     }
 
+    /**
+     * Та же сетка, что в индексе: область расширяется до границ ячеек, чтобы кластеры были целыми.
+     */
+    private List<EventClusterDto> findClustersInDatabase(GeoArea area, int zoom) {
+        int level = EventClusterGrid.level(area, zoom);
+        double cell = EventClusterGrid.cellDegrees(level);
+        return indexRepository.findClusters(EventClusterGrid.latIndex(level, area.getMinLat()) * cell - 90,
+                (EventClusterGrid.latIndex(level, area.getMaxLat()) + 1) * cell - 90,
+                EventClusterGrid.lonIndex(level, area.getMinLon()) * cell - 180,
+                (EventClusterGrid.lonIndex(level, area.getMaxLon()) + 1) * cell - 180, cell, clusterSampleSize);
+    }
+
+    private GeoArea toGeoArea(EventGeoParam geo, EventSort sort) {
+        if (geo == null || geo.isEmpty()) {
+            if (sort == EventSort.DISTANCE) {
+                throw new InvalidRequestException("Для сортировки по расстоянию нужны lat и lon");
+            }
+            return null;
+        }
+        if ((geo.getLat() == null) != (geo.getLon() == null)) {
+            throw new InvalidRequestException("Координаты точки lat и lon задаются вместе");
+        }
+        if (geo.getLat() == null && (geo.getRadius() != null || sort == EventSort.DISTANCE)) {
+            throw new InvalidRequestException("Для поиска в радиусе и сортировки по расстоянию нужны lat и lon");
+        }
+        if (geo.getRadius() != null && geo.getRadius() <= 0) {
+            throw new InvalidRequestException("Радиус поиска должен быть положительным");
+        }
+        List<Double> box = Arrays.asList(geo.getMinLat(), geo.getMinLon(), geo.getMaxLat(), geo.getMaxLon());
+        if (box.contains(null) && !box.stream().allMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Границы области minLat, minLon, maxLat и maxLon задаются вместе");
+        }
+        validateCoordinates(geo.getLat(), geo.getLon());
+        validateCoordinates(geo.getMinLat(), geo.getMinLon());
+        validateCoordinates(geo.getMaxLat(), geo.getMaxLon());
+        if (geo.getMinLat() != null && (geo.getMinLat() > geo.getMaxLat() || geo.getMinLon() > geo.getMaxLon())) {
+            throw new InvalidRequestException("Нижняя граница области должна быть не больше верхней");
+        }
+        return GeoArea.of(geo.getLat(), geo.getLon(), geo.getRadius(),
+                geo.getMinLat(), geo.getMinLon(), geo.getMaxLat(), geo.getMaxLon());
+    }
+
+    private void validateCoordinates(Double lat, Double lon) {
+        if (lat != null && (lat < -90 || lat > 90 || lon < -180 || lon > 180)) {
+            throw new InvalidRequestException("Широта должна быть от -90 до 90, долгота от -180 до 180");
+        }
+    }
+
+    private List<Event> findAllInOrder(List<Long> ids) {
+        Map<Long, Event> events = eventRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+        return ids.stream().map(events::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     private Sort getEventSort(String eventSort) {
         EventSort sort;
         if (eventSort == null) {
@@ -381,9 +598,15 @@ public class EventServiceImpl implements EventService {
         }
         switch (sort) {
             case EVENT_DATE:
-                return Sort.by("eventDate");
+                return Sort.by("eventDate").and(Sort.by("id"));
             case VIEWS:
-                return Sort.by("views");
+                return Sort.by(Sort.Direction.DESC, "views").and(Sort.by("id"));
+            case RELEVANCE:
+                // без текста запроса ранжировать не по чему, порядок как по умолчанию
+                return Sort.by("id");
+            case DISTANCE:
+                // порядок задаётся в самом запросе, выражением расстояния
+                return Sort.by("id");
             default:
                 throw new InvalidRequestException("Некорректный тип сортировки событий");
         }
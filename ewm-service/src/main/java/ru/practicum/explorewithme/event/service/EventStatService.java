@@ -1,21 +1,30 @@
 package ru.practicum.explorewithme.event.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import ru.practicum.explorewithme.StatisticClient;
-import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.AsyncStatisticClient;
+import ru.practicum.explorewithme.StatisticViews;
+import ru.practicum.explorewithme.event.repository.EventViewsRepository;
+import ru.practicum.explorewithme.exception.StatsUnavailableException;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static ru.practicum.explorewithme.constant.Constant.EVENT_URI;
 import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
@@ -25,43 +34,132 @@ import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
 @RequiredArgsConstructor
 public class EventStatService {
 
-    private final StatisticClient statisticClient;
-    private final ObjectMapper objectMapper;
-    private final Gson gson;
+    private final AsyncStatisticClient statisticClient;
+    private final EventViewsCache viewsCache;
+    private final StatsCircuitBreaker circuitBreaker;
+    private final EventViewsRepository viewsRepository;
+    private final Map<Long, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
 
-    public Map<Long, Long> getEventsViews(List<Long> events) {
-        List<StatisticViewDto> stats;
-        Map<Long, Long> eventsViews = new HashMap<>();
-        List<String> uris = new ArrayList<>();
+    @Value("${ewm.stats.timeout-ms:2000}")
+    private long timeoutMs;
+    @Value("${ewm.stats.lookup-threads:4}")
+    private int lookupThreads;
+    @Value("${ewm.stats.lookup-queue-capacity:1000}")
+    private int lookupQueueCapacity;
+    /**
+     * Время публикации читается из базы здесь, а не в потоке загрузчика кэша, который должен быть неблокирующим.
+     */
+    private ExecutorService lookupExecutor;
 
-        if (events == null || events.isEmpty()) {
-            return eventsViews;
+    @PostConstruct
+    public void start() {
+        lookupExecutor = new ThreadPoolExecutor(lookupThreads, lookupThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(lookupQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "event-published-on-lookup");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        lookupExecutor.shutdownNow();
+    }
+
+    public StatisticViews getEventsViews(List<Long> events) {
+        return join(getEventsViewsAsync(events));
+    }
+
+    public StatisticViews join(CompletableFuture<StatisticViews> views) {
+        try {
+            return views.join();
+        } catch (CompletionException e) {
+            log.warn("Не удалось получить просмотры из сервиса статистики: {}", e.getCause().getMessage());
+            throw new RuntimeException("Ошибка при загрузке данных из сервиса статистики");
         }
-        for (Long id : events) {
-            uris.add(EVENT_URI + id);
+    }
+
+    /**
+     * Запрос уходит в сервис статистики сразу и не занимает поток, поэтому его можно запустить до обращения к базе
+     * и дождаться результата после. Если сервис статистики недоступен, возвращаются последние известные
+     * значения или нули с пометкой stale, а не ошибка.
+     */
+    public CompletableFuture<StatisticViews> getEventsViewsAsync(List<Long> events) {
+        if (events == null || events.isEmpty()) {
+            return CompletableFuture.completedFuture(new StatisticViews());
         }
-        ResponseEntity<Object> response = statisticClient.getStatistics(LocalDateTime.now().minusDays(100).format(FORMATTER),
-                LocalDateTime.now().format(FORMATTER), uris, true);
-        Object body = response.getBody();
-        if (body != null) {
-            String json = gson.toJson(body);
-            TypeReference<List<StatisticViewDto>> typeRef = new TypeReference<>() {
-            };
-            try {
-                stats = objectMapper.readValue(json, typeRef);
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException("Ошибка при загрузке данных из сервиса статистики");
+        return viewsCache.getAll(events, this::loadViews).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof StatsUnavailableException) {
+                log.debug("Просмотры {} событий взяты из последних известных: {}", events.size(), cause.getMessage());
+            } else {
+                log.warn("Не удалось получить просмотры из сервиса статистики: {}", cause.getMessage());
             }
-            for (Long event : events) {
-                eventsViews.put(event, 0L);
+            return viewsCache.getLastKnown(events);
+        });
+    }
+
+    /**
+     * Одновременные загрузки пересекающихся наборов событий объединяются: id, которые уже запрашивает другой поток,
+     * не уходят в сервис статистики повторно, а ждут его результата.
+     */
+    private CompletableFuture<StatisticViews> loadViews(Collection<Long> events) {
+        Map<Long, CompletableFuture<Long>> owned = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> shared = new HashMap<>();
+
+        for (Long event : events) {
+            if (owned.containsKey(event) || shared.containsKey(event)) {
+                continue;
             }
-            if (!stats.isEmpty()) {
-                for (StatisticViewDto stat : stats) {
-                    eventsViews.put(Long.parseLong(stat.getUri().split("/", 0)[2]),
-                            stat.getHits());
-                }
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            CompletableFuture<Long> existing = inFlight.putIfAbsent(event, future);
+            if (existing == null) {
+                owned.put(event, future);
+            } else {
+                shared.put(event, existing);
             }
         }
-        return eventsViews;
+        if (!owned.isEmpty()) {
+            fetchViews(owned.keySet(), Duration.ofMillis(timeoutMs)).whenComplete((loaded, e) ->
+                    owned.forEach((event, future) -> {
+                        if (e == null) {
+                            future.complete(loaded.get(event));
+                        } else {
+                            future.completeExceptionally(e);
+                        }
+                        inFlight.remove(event, future);
+                    }));
+        }
+        Map<Long, CompletableFuture<Long>> all = new HashMap<>(owned);
+        all.putAll(shared);
+        return CompletableFuture.allOf(all.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            StatisticViews views = new StatisticViews(all.size());
+            all.forEach((event, future) -> views.put(event, future.join()));
+            return views;
+        });
+    }
+
+    /**
+     * Просмотры каждого события считаются с момента его публикации. У неопубликованных событий просмотров нет,
+     * в сервис статистики они не запрашиваются. Ошибки чтения из базы возвращаются в виде завершённого с ошибкой
+     * результата, как и ошибки сервиса статистики.
+     */
+    CompletableFuture<StatisticViews> fetchViews(Collection<Long> events, Duration timeout) {
+        CompletableFuture<Map<Long, LocalDateTime>> publishedOn;
+        try {
+            publishedOn = CompletableFuture.supplyAsync(() -> viewsRepository.findPublishedOn(events), lookupExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return publishedOn.thenCompose(published -> {
+            if (published.isEmpty()) {
+                return CompletableFuture.completedFuture(new StatisticViews());
+            }
+            Map<Long, String> starts = new HashMap<>();
+            published.forEach((event, time) -> starts.put(event, time.format(FORMATTER)));
+            String end = LocalDateTime.now().format(FORMATTER);
+            return circuitBreaker.execute(() -> statisticClient.getWindowedViews(starts, end, EVENT_URI, true,
+                    timeout));
+        });
     }
 }
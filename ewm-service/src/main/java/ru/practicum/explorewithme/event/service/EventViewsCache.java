@@ -0,0 +1,163 @@
+package ru.practicum.explorewithme.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.StatisticViews;
+import ru.practicum.explorewithme.exception.StatsUnavailableException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Кэш просмотров событий. Промахи загружаются одним пакетным запросом, а значения старше
+ * refresh-after отдаются сразу и обновляются в фоне, тоже пакетом. Загрузчик должен быть неблокирующим.
+ * Значения старше ttl считаются промахом, но хранятся до stale-ttl как последние известные на случай
+ * недоступности сервиса статистики.
+ */
+@Slf4j
+@Component
+public class EventViewsCache {
+
+    private final boolean enabled;
+    private final long refreshAfterNanos;
+    private final long ttlNanos;
+    private final Cache<Long, CachedViews> cache;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+    private final Timer loadTimer;
+    private final Timer refreshTimer;
+
+    public EventViewsCache(MeterRegistry meterRegistry,
+                           @Value("${ewm.views-cache.enabled:true}") boolean enabled,
+                           @Value("${ewm.views-cache.max-size:100000}") long maxSize,
+                           @Value("${ewm.views-cache.ttl-seconds:600}") long ttlSeconds,
+                           @Value("${ewm.views-cache.refresh-after-seconds:30}") long refreshAfterSeconds,
+                           @Value("${ewm.views-cache.stale-ttl-seconds:86400}") long staleTtlSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.refreshAfterNanos = TimeUnit.SECONDS.toNanos(refreshAfterSeconds);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(ttlSeconds, staleTtlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "event-views");
+        this.loadTimer = Timer.builder("ewm.views.load").tag("mode", "miss").register(meterRegistry);
+        this.refreshTimer = Timer.builder("ewm.views.load").tag("mode", "refresh").register(meterRegistry);
+    }
+
+    public CompletableFuture<StatisticViews> getAll(
+            Collection<Long> ids, Function<Collection<Long>, CompletableFuture<StatisticViews>> loader) {
+        if (!enabled) {
+            return loader.apply(ids);
+        }
+        StatisticViews views = new StatisticViews(ids.size());
+        Set<Long> misses = new LinkedHashSet<>();
+        List<Long> stale = new ArrayList<>();
+        long now = System.nanoTime();
+
+        for (Long id : ids) {
+            CachedViews cached = cache.getIfPresent(id);
+            if (cached == null || now - cached.loadedAt > ttlNanos) {
+                misses.add(id);
+                continue;
+            }
+            views.put(id, cached.views);
+            if (now - cached.loadedAt > refreshAfterNanos) {
+                stale.add(id);
+            }
+        }
+        if (!stale.isEmpty()) {
+            refreshAsync(stale, loader);
+        }
+        if (misses.isEmpty()) {
+            return CompletableFuture.completedFuture(views);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return loader.apply(misses).thenApply(loaded -> {
+            sample.stop(loadTimer);
+            store(misses, loaded);
+            misses.forEach(id -> views.put(id, loaded.get(id)));
+            return views;
+        });
+    }
+
+    private void refreshAsync(List<Long> stale,
+                              Function<Collection<Long>, CompletableFuture<StatisticViews>> loader) {
+        List<Long> batch = new ArrayList<>(stale.size());
+        for (Long id : stale) {
+            if (refreshing.add(id)) {
+                batch.add(id);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        loader.apply(batch).whenComplete((loaded, e) -> {
+            sample.stop(refreshTimer);
+            if (e == null) {
+                store(batch, loaded);
+            } else if (!(e.getCause() instanceof StatsUnavailableException)) {
+                log.warn("Не удалось обновить просмотры {} событий: {}", batch.size(), e.getMessage());
+            }
+            refreshing.removeAll(batch);
+        });
+    }
+
+    /**
+     * Последние известные значения без учёта ttl, для отсутствующих id - нули. Результат помечен как устаревший.
+     */
+    public StatisticViews getLastKnown(Collection<Long> ids) {
+        StatisticViews views = new StatisticViews(ids.size());
+        for (Long id : ids) {
+            CachedViews cached = cache.getIfPresent(id);
+            views.put(id, cached == null ? 0 : cached.views);
+        }
+        views.markStale();
+        return views;
+    }
+
+    /**
+     * Добавляет прирост просмотров к закэшированному значению. Время загрузки не меняется, поэтому значение
+     * всё равно перезагружается по refresh-after и ttl и не расходится со статистикой надолго.
+     */
+    public void applyDelta(long id, long delta) {
+        if (!enabled || delta == 0) {
+            return;
+        }
+        cache.asMap().computeIfPresent(id, (key, cached) -> new CachedViews(cached.views + delta, cached.loadedAt));
+    }
+
+    private void store(Collection<Long> ids, StatisticViews loaded) {
+        long now = System.nanoTime();
+        for (Long id : ids) {
+            cache.put(id, new CachedViews(loaded.get(id), now));
+        }
+    }
+
+    private static class CachedViews {
+        private final long views;
+        private final long loadedAt;
+
+        private CachedViews(long views, long loadedAt) {
+            this.views = views;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
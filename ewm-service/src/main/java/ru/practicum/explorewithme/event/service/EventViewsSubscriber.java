@@ -0,0 +1,108 @@
+package ru.practicum.explorewithme.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.explorewithme.StatisticClient;
+import ru.practicum.explorewithme.StatisticDeltaBatchDto;
+import ru.practicum.explorewithme.StatisticDeltaDto;
+import ru.practicum.explorewithme.event.repository.EventViewsRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ru.practicum.explorewithme.constant.Constant.EVENT_URI;
+import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
+
+/**
+ * Держит подписку на прирост просмотров событий и добавляет его к значениям в {@link EventViewsCache}, чтобы
+ * между перезагрузками кэш не отставал от статистики. К каждому экземпляру сервиса статистики открывается
+ * своя подписка в отдельном потоке, при разрыве соединения поток переподключается с экспоненциальной
+ * задержкой до reconnect-max-backoff-ms.
+ * Кэш считает уникальных посетителей с публикации каждого события, а подписка одна на все события, поэтому
+ * она открывается с самой ранней публикации: посещение до неё не может относиться ни к одному событию. Если
+ * посетитель заходил на uri события до его публикации, прирост его не учтёт, и значение выровняется при
+ * следующей перезагрузке кэша по refresh-after.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ewm.views-push.enabled", havingValue = "true", matchIfMissing = true)
+public class EventViewsSubscriber {
+
+    private final StatisticClient statisticClient;
+    private final EventViewsCache viewsCache;
+    private final EventViewsRepository viewsRepository;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final List<Thread> subscribers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public EventViewsSubscriber(StatisticClient statisticClient,
+                                EventViewsCache viewsCache,
+                                EventViewsRepository viewsRepository,
+                                @Value("${ewm.views-push.reconnect-backoff-ms:1000}") long backoffMs,
+                                @Value("${ewm.views-push.reconnect-max-backoff-ms:60000}") long maxBackoffMs) {
+        this.statisticClient = statisticClient;
+        this.viewsCache = viewsCache;
+        this.viewsRepository = viewsRepository;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        for (int shard = 0; shard < statisticClient.shardCount(); shard++) {
+            int subscribed = shard;
+            Thread subscriber = new Thread(() -> run(subscribed), "event-views-subscriber-" + shard);
+            subscriber.setDaemon(true);
+            subscribers.add(subscriber);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        subscribers.forEach(Thread::start);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        subscribers.forEach(Thread::interrupt);
+    }
+
+    private void run(int shard) {
+        long[] backoff = {backoffMs};
+        while (running) {
+            try {
+                String since = viewsRepository.findFirstPublishedOn().orElseGet(LocalDateTime::now).format(FORMATTER);
+                statisticClient.subscribe(shard, EVENT_URI, since, batch -> {
+                    backoff[0] = backoffMs;
+                    apply(batch);
+                });
+                log.info("Сервис статистики {} закрыл подписку на просмотры событий", shard);
+            } catch (RestClientException | DataAccessException e) {
+                log.warn("Подписка на просмотры событий в сервисе статистики {} прервана: {}", shard, e.getMessage());
+            }
+            try {
+                Thread.sleep(backoff[0]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff[0] = Math.min(backoff[0] * 2, maxBackoffMs);
+        }
+    }
+
+    private void apply(StatisticDeltaBatchDto batch) {
+        for (StatisticDeltaDto delta : batch.getDeltas()) {
+            try {
+                long id = Long.parseLong(delta.getUri().substring(EVENT_URI.length()));
+                viewsCache.applyDelta(id, delta.getUnique());
+            } catch (NumberFormatException e) {
+                log.debug("Пропущен прирост просмотров по uri {}", delta.getUri());
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.explorewithme.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.AsyncStatisticClient;
+import ru.practicum.explorewithme.StatisticViews;
+import ru.practicum.explorewithme.event.repository.EventViewsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static ru.practicum.explorewithme.constant.Constant.EVENT_URI;
+import static ru.practicum.explorewithme.constant.Constant.FORMATTER;
+import static ru.practicum.explorewithme.constant.Constant.VIEWS_PERIOD_DAYS;
+
+/**
+ * Переносит число просмотров из сервиса статистики в столбец events.views. За каждый проход запрашиваются
+ * только события, у которых были просмотры с прошлой синхронизации (с запасом overlap-seconds на опоздавшие
+ * просмотры), и для них пакетами загружаются полные значения с момента публикации. Первый проход ищет
+ * события с просмотрами за последние VIEWS_PERIOD_DAYS дней.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ewm.views-sync.enabled", havingValue = "true", matchIfMissing = true)
+public class EventViewsSync {
+
+    private final AsyncStatisticClient statisticClient;
+    private final EventStatService eventStatService;
+    private final EventViewsRepository viewsRepository;
+    private final EventSearchIndex searchIndex;
+    private final int batchSize;
+    private final long overlapSeconds;
+    private final Duration timeout;
+    private LocalDateTime lastSync;
+
+    public EventViewsSync(AsyncStatisticClient statisticClient,
+                          EventStatService eventStatService,
+                          EventViewsRepository viewsRepository,
+                          EventSearchIndex searchIndex,
+                          @Value("${ewm.views-sync.batch-size:500}") int batchSize,
+                          @Value("${ewm.views-sync.overlap-seconds:120}") long overlapSeconds,
+                          @Value("${ewm.views-sync.timeout-ms:10000}") long timeoutMs) {
+        this.statisticClient = statisticClient;
+        this.eventStatService = eventStatService;
+        this.viewsRepository = viewsRepository;
+        this.searchIndex = searchIndex;
+        this.batchSize = batchSize;
+        this.overlapSeconds = overlapSeconds;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    @Scheduled(initialDelayString = "${ewm.views-sync.initial-delay-ms:10000}",
+            fixedDelayString = "${ewm.views-sync.interval-ms:60000}")
+    public void sync() {
+        LocalDateTime end = LocalDateTime.now();
+        LocalDateTime start = lastSync == null
+                ? end.minusDays(VIEWS_PERIOD_DAYS)
+                : lastSync.minusSeconds(overlapSeconds);
+        try {
+            StatisticViews changed = statisticClient.getViews(start.format(FORMATTER), end.format(FORMATTER),
+                    EVENT_URI, null, false, timeout).join();
+            List<Long> ids = new ArrayList<>(changed.size());
+            changed.forEach((id, hits) -> ids.add(id));
+
+            int updated = 0;
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                StatisticViews views = eventStatService.fetchViews(batch, timeout).join();
+                updated += viewsRepository.updateViews(views);
+                searchIndex.updateViews(views);
+            }
+            lastSync = end;
+            log.info("Синхронизация просмотров: событий с новыми просмотрами {}, обновлено {}", ids.size(), updated);
+        } catch (CompletionException e) {
+            log.warn("Не удалось синхронизировать просмотры событий: {}", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ru.practicum.explorewithme.event.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.exception.StatsUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Изоляция вызовов сервиса статистики. Bulkhead ограничивает число одновременных запросов, а предохранитель
+ * размыкается, когда в окне последних вызовов слишком много ошибок или медленных ответов. В разомкнутом
+ * состоянии вызовы сразу завершаются StatsUnavailableException, через open-ms пропускается несколько пробных.
+ */
+@Slf4j
+@Component
+public class StatsCircuitBreaker {
+
+    private static final byte SUCCESS = 0;
+    private static final byte SLOW = 1;
+    private static final byte FAILURE = 2;
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int minCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Semaphore bulkhead;
+    private final Counter rejected;
+
+    private final byte[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSucceeded;
+
+    public StatsCircuitBreaker(MeterRegistry meterRegistry,
+                               @Value("${ewm.stats.breaker.window-size:20}") int windowSize,
+                               @Value("${ewm.stats.breaker.min-calls:10}") int minCalls,
+                               @Value("${ewm.stats.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                               @Value("${ewm.stats.breaker.slow-call-ms:500}") long slowCallMs,
+                               @Value("${ewm.stats.breaker.slow-call-rate-threshold:50}") int slowCallRateThreshold,
+                               @Value("${ewm.stats.breaker.open-ms:10000}") long openMs,
+                               @Value("${ewm.stats.breaker.half-open-calls:3}") int halfOpenCalls,
+                               @Value("${ewm.stats.bulkhead.max-concurrent:20}") int maxConcurrent) {
+        this.outcomes = new byte[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.halfOpenCalls = halfOpenCalls;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.rejected = Counter.builder("ewm.stats.rejected").register(meterRegistry);
+        Gauge.builder("ewm.stats.breaker.state", this, breaker -> breaker.state().ordinal())
+                .register(meterRegistry);
+        Gauge.builder("ewm.stats.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        if (!bulkhead.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(
+                    new StatsUnavailableException("Превышено число одновременных запросов к сервису статистики"));
+        }
+        if (!tryAcquirePermission()) {
+            bulkhead.release();
+            rejected.increment();
+            return CompletableFuture.failedFuture(
+                    new StatsUnavailableException("Сервис статистики временно недоступен"));
+        }
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, e) -> {
+            bulkhead.release();
+            long elapsed = System.nanoTime() - started;
+            record(e != null ? FAILURE : elapsed > slowCallNanos ? SLOW : SUCCESS);
+        });
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSucceeded = 0;
+                log.info("Предохранитель сервиса статистики пропускает пробные запросы");
+                // fall through
+            case HALF_OPEN:
+                if (halfOpenPermits == 0) {
+                    return false;
+                }
+                halfOpenPermits--;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private synchronized void record(byte outcome) {
+        if (state == State.OPEN) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        if (recorded == outcomes.length) {
+            forget(outcomes[position]);
+        } else {
+            recorded++;
+        }
+        outcomes[position] = outcome;
+        position = (position + 1) % outcomes.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+        if (recorded >= minCalls && (failures * 100 >= failureRateThreshold * recorded
+                || slowCalls * 100 >= slowCallRateThreshold * recorded)) {
+            open();
+        }
+    }
+
+    private void forget(byte outcome) {
+        if (outcome == FAILURE) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slowCalls--;
+        }
+    }
+
+    private void open() {
+        log.warn("Предохранитель сервиса статистики разомкнут: ошибок {}, медленных ответов {} из {}",
+                failures, slowCalls, recorded);
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        log.info("Предохранитель сервиса статистики замкнут");
+        state = State.CLOSED;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.explorewithme.pagination;
+
+import lombok.Value;
+import ru.practicum.explorewithme.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в списке, упорядоченном по ключу и затем по id: значения последнего элемента страницы и название
+ * порядка, для которого они записаны. Клиенту отдаётся непрозрачной строкой, следующая страница читается
+ * по индексу сразу после этой позиции, без OFFSET.
+ */
+@Value
+public class Cursor {
+
+    /**
+     * Порядок только по id, без отдельного ключа.
+     */
+    public static final String BY_ID = "ID";
+    private static final char SEPARATOR = '|';
+
+    String order;
+    String key;
+    long id;
+
+    public static Cursor of(long id) {
+        return new Cursor(BY_ID, null, id);
+    }
+
+    public static Cursor of(String order, Object key, long id) {
+        return new Cursor(order, key == null ? null : String.valueOf(key), id);
+    }
+
+    public String encode() {
+        String value = order + SEPARATOR + (key == null ? "" : key) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * id, после которого начинается страница в порядке по id: 0, если курсора нет.
+     */
+    public static long afterId(String value) {
+        return value == null ? 0 : decode(value, BY_ID).getId();
+    }
+
+    /**
+     * Разбирает курсор, выданный для того же порядка. Курсор другого порядка или повреждённый не принимается.
+     */
+    public static Cursor decode(String value, String order) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int first = decoded.indexOf(SEPARATOR);
+            int last = decoded.lastIndexOf(SEPARATOR);
+            if (first < 0 || first == last || !decoded.substring(0, first).equals(order)) {
+                throw new InvalidRequestException("Курсор выдан для другого порядка сортировки");
+            }
+            String key = decoded.substring(first + 1, last);
+            return new Cursor(order, key.isEmpty() ? null : key, Long.parseLong(decoded.substring(last + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Некорректный курсор страницы");
+        }
+    }
+
+    public long longKey() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Некорректный курсор страницы");
+        }
+    }
+
+    public LocalDateTime dateKey() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new InvalidRequestException("Некорректный курсор страницы");
+        }
+    }
+}
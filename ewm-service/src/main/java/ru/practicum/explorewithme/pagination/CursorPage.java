@@ -0,0 +1,41 @@
+package ru.practicum.explorewithme.pagination;
+
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка и курсор следующей. Курсор уходит клиенту в заголовке X-Next-Cursor, тело ответа
+ * остаётся массивом, как раньше. На последней странице заголовка нет.
+ */
+@Value
+public class CursorPage<T> {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    List<T> items;
+    String nextCursor;
+
+    /**
+     * loaded - до size + 1 элементов: лишний только показывает, что следующая страница есть, и в ответ
+     * не попадает. Курсор строится по последнему элементу страницы, position может вернуть null, если
+     * для этого порядка курсор не поддерживается.
+     */
+    public static <E, T> CursorPage<T> of(List<E> loaded, int size, Function<E, Cursor> position,
+                                          Function<List<E>, List<T>> mapper) {
+        boolean hasNext = size > 0 && loaded.size() > size;
+        List<E> page = loaded.size() > size ? loaded.subList(0, size) : loaded;
+        Cursor next = hasNext ? position.apply(page.get(page.size() - 1)) : null;
+        return new CursorPage<>(mapper.apply(page), next == null ? null : next.encode());
+    }
+
+    public ResponseEntity<List<T>> toResponse() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.explorewithme.pagination;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+
+public final class Keyset {
+
+    private Keyset() {
+    }
+
+    /**
+     * Строки после позиции (value, lastId) в порядке по ключу, затем по возрастанию id. Нестрогая граница
+     * по ключу повторяет условие, но по ней PostgreSQL начинает чтение индекса с нужного места.
+     */
+    public static <Y extends Comparable<? super Y>> Predicate after(CriteriaBuilder criteriaBuilder,
+                                                                    Expression<? extends Y> key, Y value,
+                                                                    boolean descending,
+                                                                    Expression<Long> id, long lastId) {
+        Predicate bound = descending
+                ? criteriaBuilder.lessThanOrEqualTo(key, value)
+                : criteriaBuilder.greaterThanOrEqualTo(key, value);
+        Predicate beyond = descending
+                ? criteriaBuilder.lessThan(key, value)
+                : criteriaBuilder.greaterThan(key, value);
+        return criteriaBuilder.and(bound, criteriaBuilder.or(beyond,
+                criteriaBuilder.and(criteriaBuilder.equal(key, value), criteriaBuilder.greaterThan(id, lastId))));
+    }
+}
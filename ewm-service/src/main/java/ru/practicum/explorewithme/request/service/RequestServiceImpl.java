@@ -7,6 +7,7 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.event.model.Event;
 import ru.practicum.explorewithme.event.model.EventState;
 import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.service.EventSearchIndex;
 import ru.practicum.explorewithme.exception.DataConflictException;
 import ru.practicum.explorewithme.exception.EventNotFoundException;
 import ru.practicum.explorewithme.exception.RequestNotFoundException;
@@ -29,6 +30,7 @@ public class RequestServiceImpl implements RequestService {
     private final RequestRepository requestRepository;
     private final UserService userService;
     private final EventRepository eventRepository;
+    private final EventSearchIndex searchIndex;
 
     @Override
     public List<ParticipationRequestDto> findUserRequests(Long userId) {
@@ -65,6 +67,7 @@ public class RequestServiceImpl implements RequestService {
             request.setStatus(RequestStatus.CONFIRMED);
             event.setConfirmedRequests(event.getConfirmedRequests() + 1);
             eventRepository.save(event);
+            searchIndex.indexAfterCommit(event);
         }
         request = requestRepository.save(request);
         log.info("Добавлен новый запрос на участие в событии {} пользователя {}", event.getId(), userId);
@@ -2,6 +2,7 @@ package ru.practicum.explorewithme.user.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.explorewithme.user.dto.UserInDto;
@@ -24,10 +25,12 @@ public class UserController {
 
     //Admin endpoints
     @GetMapping("/admin/users")
-    public List<UserOutDto> findUsers(@RequestParam(required = false) List<Long> ids,
-                                      @PositiveOrZero @RequestParam(required = false, defaultValue = "0") Integer from,
-                                      @Positive @RequestParam(required = false, defaultValue = "10") Integer size) {
-        return userService.findUsers(ids, from, size);
+    public ResponseEntity<List<UserOutDto>> findUsers(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) String cursor,
+            @PositiveOrZero @RequestParam(required = false, defaultValue = "0") Integer from,
+            @Positive @RequestParam(required = false, defaultValue = "10") Integer size) {
+        return userService.findUsers(ids, cursor, from, size).toResponse();
     }
 
     @DeleteMapping(value = "/admin/users/{userId}")
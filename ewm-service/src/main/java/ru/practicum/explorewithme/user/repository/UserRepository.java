@@ -10,5 +10,7 @@ import java.util.List;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    List<User> findByIdIn(List<Long> userIds, Pageable pageable);
+    List<User> findByIdGreaterThan(Long afterId, Pageable pageable);
+
+    List<User> findByIdInAndIdGreaterThan(List<Long> userIds, Long afterId, Pageable pageable);
 }
@@ -1,5 +1,6 @@
 package ru.practicum.explorewithme.user.service;
 
+import ru.practicum.explorewithme.pagination.CursorPage;
 import ru.practicum.explorewithme.user.dto.UserInDto;
 import ru.practicum.explorewithme.user.dto.UserOutDto;
 import ru.practicum.explorewithme.user.dto.UserWithFollowersDto;
@@ -9,7 +10,7 @@ import java.util.List;
 
 public interface UserService {
 
-    List<UserOutDto> findUsers(List<Long> ids, Integer from, Integer size);
+    CursorPage<UserOutDto> findUsers(List<Long> ids, String cursor, Integer from, Integer size);
 
     UserOutDto addUser(UserInDto inDto);
 
@@ -2,13 +2,16 @@ package ru.practicum.explorewithme.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.exception.DataConflictException;
 import ru.practicum.explorewithme.exception.DataValidationException;
 import ru.practicum.explorewithme.exception.UserNotFoundException;
+import ru.practicum.explorewithme.pagination.Cursor;
+import ru.practicum.explorewithme.pagination.CursorPage;
+import ru.practicum.explorewithme.pagination.OffsetPageRequest;
 import ru.practicum.explorewithme.user.dto.UserInDto;
 import ru.practicum.explorewithme.user.dto.UserMapper;
 import ru.practicum.explorewithme.user.dto.UserOutDto;
@@ -27,16 +30,17 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
 
     @Override
-    public List<UserOutDto> findUsers(List<Long> ids, Integer from, Integer size) {
+    public CursorPage<UserOutDto> findUsers(List<Long> ids, String cursor, Integer from, Integer size) {
         List<User> users;
-        Pageable pageRequest = PageRequest.of(from / size, size);
+        long afterId = Cursor.afterId(cursor);
+        Pageable pageRequest = OffsetPageRequest.of(cursor == null ? from : 0, size + 1, Sort.by("id"));
         if (ids == null || ids.isEmpty()) {
-            users = userRepository.findAll(pageRequest).getContent();
+            users = userRepository.findByIdGreaterThan(afterId, pageRequest);
         } else {
-            users = userRepository.findByIdIn(ids, pageRequest);
+            users = userRepository.findByIdInAndIdGreaterThan(ids, afterId, pageRequest);
         }
         log.info("Выполняется запрос на поиск пользователей. Выбранные id: {}", ids);
-        return UserMapper.toOutDtos(users);
+        return CursorPage.of(users, size, user -> Cursor.of(user.getId()), UserMapper::toOutDtos);
     }
 
     @Override
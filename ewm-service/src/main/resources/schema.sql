@@ -34,9 +34,21 @@
   published_on TIMESTAMP WITHOUT TIME ZONE,
   state VARCHAR(30)                         NOT NULL,
   confirmed_requests INTEGER,
+  views BIGINT DEFAULT 0                    NOT NULL,
+  search_vector TSVECTOR GENERATED ALWAYS AS (
+      setweight(to_tsvector('russian', title), 'A') ||
+      setweight(to_tsvector('russian', annotation), 'B') ||
+      setweight(to_tsvector('russian', description), 'C')) STORED,
   CONSTRAINT fk_events_to_categories FOREIGN KEY(category_id) REFERENCES categories(id),
   CONSTRAINT fk_events_to_users FOREIGN KEY(initiator_id) REFERENCES users(id));
 
+  CREATE INDEX IF NOT EXISTS events_state_views_idx ON events (state, views DESC, id);
+  CREATE INDEX IF NOT EXISTS events_search_idx ON events USING GIN (search_vector);
+  CREATE INDEX IF NOT EXISTS events_location_idx ON events (loc_lat, loc_lon) WHERE state = 'PUBLISHED';
+  CREATE INDEX IF NOT EXISTS events_state_date_idx ON events (state, event_date, id);
+  CREATE INDEX IF NOT EXISTS events_initiator_idx ON events (initiator_id, id);
+  CREATE INDEX IF NOT EXISTS events_initiator_date_idx ON events (initiator_id, event_date, id) WHERE state = 'PUBLISHED';
+
   CREATE TABLE IF NOT EXISTS requests (
   id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
   created_at TIMESTAMP                      NOT NULL,
@@ -51,6 +63,8 @@
   is_pinned BOOLEAN                         NOT NULL,
   title VARCHAR(50)                         NOT NULL);
 
+  CREATE INDEX IF NOT EXISTS compilations_pinned_idx ON compilations (is_pinned, id);
+
   CREATE TABLE IF NOT EXISTS compilation_events (
   compilation_id BIGINT                     NOT NULL,
   event_id BIGINT                           NOT NULL,
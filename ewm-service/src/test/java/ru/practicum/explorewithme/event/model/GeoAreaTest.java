@@ -0,0 +1,89 @@
+package ru.practicum.explorewithme.event.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoAreaTest {
+
+    @Test
+    void pointWithoutRadiusIsUnbounded() {
+        GeoArea area = GeoArea.of(55.75, 37.61, null, null, null, null, null);
+
+        assertFalse(area.isBounded());
+        assertTrue(area.contains(-90, -180));
+        assertTrue(area.contains(90, 180));
+    }
+
+    @Test
+    void radiusBoxesCircle() {
+        GeoArea area = GeoArea.of(0.0, 0.0, 111.2, null, null, null, null);
+
+        assertTrue(area.isBounded());
+        assertEquals(-1, area.getMinLat(), 0.01);
+        assertEquals(1, area.getMaxLat(), 0.01);
+        assertEquals(-1, area.getMinLon(), 0.01);
+        assertEquals(1, area.getMaxLon(), 0.01);
+        assertTrue(area.contains(0.5, 0.5));
+        // угол прямоугольника лежит вне круга
+        assertFalse(area.contains(0.95, 0.95));
+    }
+
+    @Test
+    void radiusIntersectsBox() {
+        GeoArea area = GeoArea.of(0.0, 0.0, 111.2, 0.0, 0.0, 10.0, 10.0);
+
+        assertEquals(0, area.getMinLat());
+        assertEquals(0, area.getMinLon());
+        assertEquals(1, area.getMaxLat(), 0.01);
+        assertEquals(1, area.getMaxLon(), 0.01);
+        assertFalse(area.contains(-0.5, 0.5));
+    }
+
+    @Test
+    void circleNearPoleTakesAllLongitudes() {
+        GeoArea area = GeoArea.of(89.5, 0.0, 200.0, null, null, null, null);
+
+        assertEquals(90, area.getMaxLat());
+        assertEquals(-180, area.getMinLon());
+        assertEquals(180, area.getMaxLon());
+        assertTrue(area.contains(89.9, 179.0));
+    }
+
+    @Test
+    void circleAcrossAntimeridianTakesAllLongitudes() {
+        GeoArea area = GeoArea.of(0.0, 179.5, 200.0, null, null, null, null);
+
+        assertEquals(-180, area.getMinLon());
+        assertEquals(180, area.getMaxLon());
+        assertTrue(area.contains(0, -179.5));
+        assertFalse(area.contains(0, 0));
+    }
+
+    @Test
+    void boxIncludesItsEdges() {
+        GeoArea area = GeoArea.of(null, null, null, 10.0, 20.0, 30.0, 40.0);
+
+        assertTrue(area.contains(10, 20));
+        assertTrue(area.contains(30, 40));
+        assertFalse(area.contains(30.001, 40));
+    }
+
+    @Test
+    void distanceByHaversine() {
+        assertEquals(0, GeoArea.distanceKm(55.75, 37.61, 55.75, 37.61), 1e-9);
+        // Москва - Санкт-Петербург
+        assertEquals(634, GeoArea.distanceKm(55.7558, 37.6173, 59.9343, 30.3351), 2);
+        assertEquals(Math.PI * GeoArea.EARTH_RADIUS_KM, GeoArea.distanceKm(0, 0, 0, 180), 1e-6);
+    }
+
+    @Test
+    void distanceInMillimeters() {
+        GeoArea area = GeoArea.of(0.0, 0.0, null, null, null, null, null);
+
+        assertEquals(0, area.distanceMillimeters(0, 0));
+        assertEquals(Math.round(area.distanceKm(0, 1) * 1_000_000), area.distanceMillimeters(0, 1));
+    }
+}
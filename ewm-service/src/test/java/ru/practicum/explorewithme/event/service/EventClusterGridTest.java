@@ -0,0 +1,106 @@
+package ru.practicum.explorewithme.event.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.event.dto.EventClusterDto;
+import ru.practicum.explorewithme.event.model.GeoArea;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventClusterGridTest {
+
+    private static final GeoArea WORLD = GeoArea.of(null, null, null, -90.0, -180.0, 90.0, 180.0);
+
+    @Test
+    void groupsEventsOfOneCell() {
+        EventClusterGrid grid = new EventClusterGrid();
+        grid.add(1, 55.75, 37.61);
+        grid.add(2, 55.76, 37.62);
+        grid.add(3, 59.93, 30.31);
+
+        List<EventClusterDto> clusters = grid.clusters(WORLD, 3, 10);
+
+        assertEquals(2, clusters.size());
+        EventClusterDto moscow = clusters.get(0);
+        assertEquals(2, moscow.getCount());
+        assertEquals(List.of(1L, 2L), moscow.getEventIds());
+        assertEquals(55.755, moscow.getLat(), 1e-9);
+        assertEquals(37.615, moscow.getLon(), 1e-9);
+        assertEquals(List.of(3L), clusters.get(1).getEventIds());
+    }
+
+    @Test
+    void sampleTakesSmallestIds() {
+        EventClusterGrid grid = new EventClusterGrid();
+        grid.add(7, 10, 10);
+        grid.add(3, 10, 10);
+        grid.add(9, 10, 10);
+        grid.add(1, 10, 10);
+        grid.remove(3, 10, 10);
+
+        EventClusterDto cluster = grid.clusters(WORLD, 0, 2).get(0);
+
+        assertEquals(3, cluster.getCount());
+        assertEquals(List.of(1L, 7L), cluster.getEventIds());
+    }
+
+    @Test
+    void removeDropsEmptyCell() {
+        EventClusterGrid grid = new EventClusterGrid();
+        grid.add(1, 10, 10);
+        grid.add(2, 20, 20);
+        grid.remove(1, 10, 10);
+
+        List<EventClusterDto> clusters = grid.clusters(WORLD, 5, 10);
+
+        assertEquals(1, clusters.size());
+        assertEquals(List.of(2L), clusters.get(0).getEventIds());
+        assertEquals(20, clusters.get(0).getLat(), 1e-9);
+    }
+
+    @Test
+    void mergeKeepsIdsOrdered() {
+        EventClusterGrid grid = new EventClusterGrid();
+        grid.add(2, 10, 10);
+        grid.add(5, 10, 10);
+        EventClusterGrid other = new EventClusterGrid();
+        other.add(1, 10, 10);
+        other.add(4, 10, 10);
+        other.add(6, 50, 50);
+
+        grid.merge(other);
+        List<EventClusterDto> clusters = grid.clusters(WORLD, 4, 3);
+
+        assertEquals(2, clusters.size());
+        assertEquals(4, clusters.get(0).getCount());
+        assertEquals(List.of(1L, 2L, 4L), clusters.get(0).getEventIds());
+        assertEquals(10, clusters.get(0).getLat(), 1e-9);
+        grid.remove(1, 10, 10);
+        assertEquals(List.of(2L, 4L, 5L), grid.clusters(WORLD, 4, 3).get(0).getEventIds());
+    }
+
+    @Test
+    void mapEdgeFallsIntoOwnCell() {
+        EventClusterGrid grid = new EventClusterGrid();
+        grid.add(1, 90, 180);
+        grid.add(2, -90, -180);
+
+        List<EventClusterDto> clusters = grid.clusters(WORLD, 2, 10);
+
+        assertEquals(2, clusters.size());
+        assertTrue(clusters.stream().anyMatch(cluster -> cluster.getEventIds().equals(List.of(1L))));
+    }
+
+    @Test
+    void coarserLevelWhenAreaHasTooManyCells() {
+        assertEquals(EventClusterGrid.MAX_ZOOM, EventClusterGrid.level(GeoArea.of(null, null, null,
+                55.0, 37.0, 55.5, 37.5), 20));
+        int level = EventClusterGrid.level(WORLD, EventClusterGrid.MAX_ZOOM);
+        assertTrue(level < EventClusterGrid.MAX_ZOOM);
+        long lat = EventClusterGrid.latIndex(level, 90) - EventClusterGrid.latIndex(level, -90) + 1;
+        long lon = EventClusterGrid.lonIndex(level, 180) - EventClusterGrid.lonIndex(level, -180) + 1;
+        assertTrue(lat * lon <= EventClusterGrid.MAX_CELLS);
+    }
+}
@@ -0,0 +1,238 @@
+package ru.practicum.explorewithme.event.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.StatisticViews;
+import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.event.dto.EventUserParam;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventSort;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.model.GeoArea;
+import ru.practicum.explorewithme.event.repository.EventIndexRepository;
+import ru.practicum.explorewithme.event.repository.EventIndexRow;
+import ru.practicum.explorewithme.pagination.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventSearchIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 1, 12, 0);
+    private static final int EVENTS = 10;
+
+    private final EventIndexRepository indexRepository = mock(EventIndexRepository.class);
+
+    /**
+     * События 1..10: категория 1 у нечётных и 2 у чётных, платные - кратные трём, свободные места у id до 6.
+     * Дата события - NOW + (11 - id) дней, просмотры - id по модулю 4.
+     */
+    private final List<EventIndexRow> rows = new ArrayList<>();
+
+    EventSearchIndexTest() {
+        for (long id = 1; id <= EVENTS; id++) {
+            rows.add(new EventIndexRow(id, true, id % 2 == 1 ? 1 : 2, id % 3 == 0, NOW.plusDays(EVENTS + 1 - id),
+                    id <= 6 ? 0 : 10, 10, id % 4, 50 + id * 0.5, 30 + id * 0.25));
+        }
+        when(indexRepository.findPublishedIdRange()).thenAnswer(invocation -> new long[]{1, EVENTS + 1});
+        doAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            long to = invocation.getArgument(1);
+            Consumer<EventIndexRow> consumer = invocation.getArgument(2);
+            rows.stream().filter(row -> row.getId() >= from && row.getId() < to).forEach(consumer);
+            return null;
+        }).when(indexRepository).scanPublished(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void nothingBeforeBuild() {
+        EventSearchIndex index = index(1);
+
+        assertTrue(search(index, param(null), null).isEmpty());
+        assertTrue(index.clusters(GeoArea.of(null, null, null, -90.0, -180.0, 90.0, 180.0), 3, 5).isEmpty());
+    }
+
+    @Test
+    void textQueriesAreLeftToDatabase() {
+        EventSearchIndex index = built(1);
+
+        assertTrue(search(index, param("событие"), null).isEmpty());
+        assertTrue(search(index, param("!!!"), EventSort.RELEVANCE).isEmpty());
+    }
+
+    @Test
+    void filtersIntersect() {
+        EventSearchIndex index = built(1);
+        EventUserParam param = param(null);
+        param.setCategories(List.of(1L));
+        param.setOnlyAvailable(true);
+        assertEquals(List.of(1L, 3L, 5L), ids(index, param, null));
+
+        param.setPaid(true);
+        assertEquals(List.of(3L), ids(index, param, null));
+
+        param.setPaid(false);
+        param.setCategories(List.of(2L, 42L));
+        param.setOnlyAvailable(null);
+        assertEquals(List.of(2L, 4L, 8L, 10L), ids(index, param, null));
+    }
+
+    @Test
+    void dateRangeIsExclusive() {
+        EventSearchIndex index = built(1);
+        EventUserParam param = param(null);
+        param.setRangeEnd(NOW.plusDays(5));
+
+        // строго до NOW + 5 дней
+        assertEquals(List.of(7L, 8L, 9L, 10L), ids(index, param, null));
+    }
+
+    @Test
+    void sortsByKeyThenId() {
+        EventSearchIndex index = built(1);
+
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), ids(index, param(null), EventSort.EVENT_DATE));
+        // просмотры id % 4 по убыванию, при равенстве по id
+        assertEquals(List.of(3L, 7L, 2L, 6L, 10L, 1L, 5L, 9L, 4L, 8L), ids(index, param(null), EventSort.VIEWS));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L),
+                ids(index, param(null), EventSort.RELEVANCE));
+    }
+
+    @Test
+    void offsetAndLimitTakeTopOfOrder() {
+        EventSearchIndex index = built(1);
+
+        assertEquals(Optional.of(List.of(2L, 6L, 10L)),
+                index.search(param(null), NOW, EventSort.VIEWS, null, null, 2, 3));
+        assertEquals(Optional.of(List.of(9L, 10L)), index.search(param(null), NOW, null, null, null, 8, 5));
+        assertEquals(Optional.of(List.of()), index.search(param(null), NOW, null, null, null, 20, 5));
+    }
+
+    @Test
+    void cursorContinuesOrder() {
+        EventSearchIndex index = built(1);
+        List<Long> all = ids(index, param(null), EventSort.VIEWS);
+
+        Cursor after = Cursor.of(EventSort.VIEWS.name(), 2L, 6);
+        assertEquals(all.subList(all.indexOf(6L) + 1, all.size()),
+                index.search(param(null), NOW, EventSort.VIEWS, null, after, 0, EVENTS).orElseThrow());
+
+        Cursor afterDate = Cursor.of(EventSort.EVENT_DATE.name(), NOW.plusDays(4), 7);
+        assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L),
+                index.search(param(null), NOW, EventSort.EVENT_DATE, null, afterDate, 0, EVENTS).orElseThrow());
+    }
+
+    @Test
+    void areaFiltersAndSortsByDistance() {
+        EventSearchIndex index = built(1);
+        GeoArea box = GeoArea.of(null, null, null, 51.0, 30.0, 52.0, 32.0);
+        assertEquals(Optional.of(List.of(2L, 3L, 4L)), index.search(param(null), NOW, null, box, null, 0, EVENTS));
+
+        GeoArea near = GeoArea.of(52.5, 31.25, 100.0, null, null, null, null);
+        List<Long> byDistance = index.search(param(null), NOW, EventSort.DISTANCE, near, null, 0, EVENTS)
+                .orElseThrow();
+        // на градус широты больше 100 км, а 6 ближе 4, потому что градус долготы севернее короче
+        assertEquals(List.of(5L, 6L, 4L), byDistance);
+    }
+
+    @Test
+    void parallelBuildMatchesSingleThreaded() {
+        EventSearchIndex single = built(1);
+        EventSearchIndex parallel = built(3);
+        EventUserParam param = param(null);
+        param.setCategories(List.of(1L, 2L));
+
+        for (EventSort sort : new EventSort[]{null, EventSort.EVENT_DATE, EventSort.VIEWS}) {
+            assertEquals(ids(single, param, sort), ids(parallel, param, sort));
+        }
+        GeoArea world = GeoArea.of(null, null, null, -90.0, -180.0, 90.0, 180.0);
+        assertEquals(single.clusters(world, 5, 3), parallel.clusters(world, 5, 3));
+    }
+
+    @Test
+    void changesDuringBuildAreApplied() {
+        EventSearchIndex index = index(2);
+        StatisticViews views = new StatisticViews();
+        views.put(1, 100);
+        index.updateViews(views);
+        index.indexAfterCommit(event(2, EventState.CANCELED));
+
+        build(index);
+
+        assertEquals(1L, ids(index, param(null), EventSort.VIEWS).get(0));
+        assertFalse(ids(index, param(null), null).contains(2L));
+    }
+
+    @Test
+    void reindexesAfterBuild() {
+        EventSearchIndex index = built(2);
+
+        index.indexAfterCommit(event(3, EventState.CANCELED));
+        index.indexAfterCommit(event(11, EventState.PUBLISHED));
+
+        EventUserParam param = param(null);
+        param.setCategories(List.of(1L));
+        assertEquals(List.of(1L, 5L, 7L, 9L, 11L), ids(index, param, null));
+    }
+
+    private EventSearchIndex index(int threads) {
+        return new EventSearchIndex(indexRepository, new SimpleMeterRegistry(), true, threads);
+    }
+
+    private EventSearchIndex built(int threads) {
+        EventSearchIndex index = index(threads);
+        build(index);
+        return index;
+    }
+
+    /**
+     * Индекс строится в фоновом потоке, ждём, пока он начнёт отвечать.
+     */
+    private static void build(EventSearchIndex index) {
+        index.rebuild();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (search(index, param(null), null).isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "индекс не построен");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Optional<List<Long>> search(EventSearchIndex index, EventUserParam param, EventSort sort) {
+        return index.search(param, NOW, sort, null, null, 0, EVENTS + 10);
+    }
+
+    private static List<Long> ids(EventSearchIndex index, EventUserParam param, EventSort sort) {
+        return search(index, param, sort).orElseThrow();
+    }
+
+    private static EventUserParam param(String text) {
+        return new EventUserParam(text, null, null, null, null, null, null, 0, EVENTS, null, null);
+    }
+
+    private static Event event(long id, EventState state) {
+        return Event.builder()
+                .id(id)
+                .state(state)
+                .category(new Category(id % 2 == 1 ? 1L : 2L, "category"))
+                .isPaid(false)
+                .eventDate(NOW.plusDays(1))
+                .confirmedRequests(0)
+                .participantLimit(10)
+                .views(0L)
+                .lat(50f)
+                .lon(30f)
+                .build();
+    }
+}
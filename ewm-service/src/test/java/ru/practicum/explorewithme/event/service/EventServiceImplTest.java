@@ -0,0 +1,41 @@
+package ru.practicum.explorewithme.event.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.explorewithme.category.service.CategoryService;
+import ru.practicum.explorewithme.event.dto.EventUserParam;
+import ru.practicum.explorewithme.event.repository.EventIndexRepository;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.pagination.CursorPage;
+import ru.practicum.explorewithme.request.repository.RequestRepository;
+import ru.practicum.explorewithme.user.service.UserService;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class EventServiceImplTest {
+
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final EventStatService eventStatService = mock(EventStatService.class);
+    private final EventSearchIndex searchIndex = mock(EventSearchIndex.class);
+    private final EventServiceImpl service = new EventServiceImpl(eventRepository, mock(UserService.class),
+            mock(CategoryService.class), eventStatService, mock(RequestRepository.class), searchIndex,
+            mock(EventIndexRepository.class));
+
+    @Test
+    void fullTextWithoutWordsFindsNothing() {
+        ReflectionTestUtils.setField(service, "fullTextSearch", true);
+
+        for (String text : new String[]{"!!!", "", " - "}) {
+            CursorPage<?> page = service.findEventsByPublic(
+                    new EventUserParam(text, null, null, null, null, null, null, 0, 10, null, null), null);
+
+            assertTrue(page.getItems().isEmpty());
+            assertNull(page.getNextCursor());
+        }
+        // ни индекс, ни база не спрашиваются: без условия на текст они вернули бы все события
+        verifyNoInteractions(searchIndex, eventRepository, eventStatService);
+    }
+}
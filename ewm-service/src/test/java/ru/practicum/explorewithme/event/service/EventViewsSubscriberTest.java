@@ -0,0 +1,81 @@
+package ru.practicum.explorewithme.event.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.StatisticClient;
+import ru.practicum.explorewithme.StatisticDeltaBatchDto;
+import ru.practicum.explorewithme.StatisticDeltaDto;
+import ru.practicum.explorewithme.StatisticViews;
+import ru.practicum.explorewithme.event.repository.EventViewsRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Пакеты из подписки доходят до {@link EventViewsCache}. Сам поток подписки к сервису статистики проверяет
+ * StatisticSubscriptionIntegrationTest в stats-service.
+ */
+class EventViewsSubscriberTest {
+
+    private static final LocalDateTime FIRST_PUBLISHED = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final StatisticClient statisticClient = mock(StatisticClient.class);
+    private final EventViewsRepository viewsRepository = mock(EventViewsRepository.class);
+    private final EventViewsCache viewsCache = new EventViewsCache(new SimpleMeterRegistry(), true, 100, 600, 30,
+            600);
+
+    @Test
+    void deltasReachCache() throws InterruptedException {
+        StatisticViews loaded = new StatisticViews();
+        loaded.put(5, 10);
+        loaded.put(7, 20);
+        viewsCache.getAll(List.of(5L, 7L), ids -> CompletableFuture.completedFuture(loaded)).join();
+
+        CountDownLatch applied = new CountDownLatch(1);
+        when(statisticClient.shardCount()).thenReturn(1);
+        when(viewsRepository.findFirstPublishedOn()).thenReturn(Optional.of(FIRST_PUBLISHED));
+        doAnswer(invocation -> {
+            Consumer<StatisticDeltaBatchDto> consumer = invocation.getArgument(3);
+            consumer.accept(new StatisticDeltaBatchDto(List.of()));
+            consumer.accept(new StatisticDeltaBatchDto(List.of(
+                    new StatisticDeltaDto("/events/5", 3, 2),
+                    new StatisticDeltaDto("/events/top", 1, 1),
+                    new StatisticDeltaDto("/events/9", 4, 4))));
+            applied.countDown();
+            Thread.sleep(Long.MAX_VALUE);
+            return null;
+        }).when(statisticClient).subscribe(anyInt(), anyString(), anyString(), any());
+
+        EventViewsSubscriber subscriber = new EventViewsSubscriber(statisticClient, viewsCache, viewsRepository,
+                10, 10);
+        subscriber.start();
+        try {
+            assertTrue(applied.await(5, TimeUnit.SECONDS));
+        } finally {
+            subscriber.stop();
+        }
+
+        verify(statisticClient).subscribe(eq(0), eq("/events/"), eq("2026-01-01 12:00:00"), any());
+        StatisticViews views = viewsCache.getLastKnown(List.of(5L, 7L, 9L));
+        assertEquals(12, views.get(5));
+        assertEquals(20, views.get(7));
+        // прирост события, которого нет в кэше, не запоминается: значение загрузится целиком при промахе
+        assertEquals(0, views.get(9));
+    }
+}
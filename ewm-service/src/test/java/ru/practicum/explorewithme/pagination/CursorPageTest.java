@@ -0,0 +1,43 @@
+package ru.practicum.explorewithme.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CursorPageTest {
+
+    @Test
+    void extraItemGivesNextCursor() {
+        CursorPage<Long> page = CursorPage.of(List.of(1L, 2L, 3L), 2, Cursor::of, Function.identity());
+
+        assertEquals(List.of(1L, 2L), page.getItems());
+        assertEquals(2, Cursor.afterId(page.getNextCursor()));
+        assertEquals(page.getNextCursor(),
+                page.toResponse().getHeaders().getFirst(CursorPage.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<Long> page = CursorPage.of(List.of(1L, 2L), 2, Cursor::of, Function.identity());
+
+        ResponseEntity<List<Long>> response = page.toResponse();
+
+        assertNull(page.getNextCursor());
+        assertFalse(response.getHeaders().containsKey(CursorPage.NEXT_CURSOR_HEADER));
+        assertEquals(List.of(1L, 2L), response.getBody());
+    }
+
+    @Test
+    void orderWithoutCursorHasNoNextCursor() {
+        CursorPage<String> page = CursorPage.of(List.of(1L, 2L, 3L), 2, id -> null, ids -> List.of("a", "b"));
+
+        assertEquals(List.of("a", "b"), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+}
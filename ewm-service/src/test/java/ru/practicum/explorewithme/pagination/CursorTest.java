@@ -0,0 +1,79 @@
+package ru.practicum.explorewithme.pagination;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.explorewithme.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorTest {
+
+    @Test
+    void decodesEncodedCursor() {
+        LocalDateTime date = LocalDateTime.of(2026, 10, 18, 12, 30, 15, 123_000_000);
+        Cursor cursor = Cursor.of("EVENT_DATE", date, 42);
+
+        Cursor decoded = Cursor.decode(cursor.encode(), "EVENT_DATE");
+
+        assertEquals(cursor, decoded);
+        assertEquals(date, decoded.dateKey());
+        assertEquals(42, decoded.getId());
+    }
+
+    @Test
+    void keyMayContainSeparator() {
+        Cursor cursor = Cursor.of("TITLE", "a|b", 7);
+
+        assertEquals("a|b", Cursor.decode(cursor.encode(), "TITLE").getKey());
+    }
+
+    @Test
+    void cursorByIdHasNoKey() {
+        Cursor decoded = Cursor.decode(Cursor.of(15).encode(), Cursor.BY_ID);
+
+        assertNull(decoded.getKey());
+        assertEquals(15, Cursor.afterId(Cursor.of(15).encode()));
+        assertEquals(0, Cursor.afterId(null));
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = Cursor.of("VIEWS", -1L, Long.MAX_VALUE).encode();
+
+        assertEquals(-1, Cursor.decode(encoded, "VIEWS").longKey());
+        assertEquals(encoded, encoded.replaceAll("[^A-Za-z0-9_-]", ""));
+    }
+
+    @Test
+    void rejectsCursorOfOtherOrder() {
+        String encoded = Cursor.of("VIEWS", 10L, 1).encode();
+
+        assertThrows(InvalidRequestException.class, () -> Cursor.decode(encoded, "EVENT_DATE"));
+        assertThrows(InvalidRequestException.class, () -> Cursor.afterId(encoded));
+    }
+
+    @Test
+    void rejectsDamagedCursor() {
+        assertThrows(InvalidRequestException.class, () -> Cursor.decode("not base64!", Cursor.BY_ID));
+        assertThrows(InvalidRequestException.class, () -> Cursor.decode(encode("ID|"), Cursor.BY_ID));
+        assertThrows(InvalidRequestException.class, () -> Cursor.decode(encode("ID||x"), Cursor.BY_ID));
+    }
+
+    @Test
+    void rejectsKeyOfWrongType() {
+        Cursor cursor = Cursor.decode(Cursor.of("VIEWS", "many", 1).encode(), "VIEWS");
+
+        assertThrows(InvalidRequestException.class, cursor::longKey);
+        assertThrows(InvalidRequestException.class, cursor::dateKey);
+        assertThrows(InvalidRequestException.class, Cursor.of(1)::dateKey);
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.explorewithme.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeysetTest {
+
+    private final CriteriaBuilder criteriaBuilder = mock(CriteriaBuilder.class);
+    @SuppressWarnings("unchecked")
+    private final Expression<Long> key = mock(Expression.class);
+    @SuppressWarnings("unchecked")
+    private final Expression<Long> id = mock(Expression.class);
+    private final Predicate bound = mock(Predicate.class);
+    private final Predicate beyond = mock(Predicate.class);
+    private final Predicate sameKey = mock(Predicate.class);
+    private final Predicate nextId = mock(Predicate.class);
+    private final Predicate tie = mock(Predicate.class);
+    private final Predicate after = mock(Predicate.class);
+    private final Predicate result = mock(Predicate.class);
+
+    @Test
+    void ascendingOrder() {
+        when(criteriaBuilder.greaterThanOrEqualTo(key, 10L)).thenReturn(bound);
+        when(criteriaBuilder.greaterThan(key, 10L)).thenReturn(beyond);
+        stubTie();
+
+        assertSame(result, Keyset.after(criteriaBuilder, key, 10L, false, id, 5));
+        verify(criteriaBuilder, never()).lessThan(key, 10L);
+    }
+
+    @Test
+    void descendingOrder() {
+        when(criteriaBuilder.lessThanOrEqualTo(key, 10L)).thenReturn(bound);
+        when(criteriaBuilder.lessThan(key, 10L)).thenReturn(beyond);
+        stubTie();
+
+        assertSame(result, Keyset.after(criteriaBuilder, key, 10L, true, id, 5));
+        verify(criteriaBuilder, never()).greaterThan(key, 10L);
+    }
+
+    /**
+     * key > value OR key = value AND id > lastId, и отдельно нестрогая граница по ключу.
+     */
+    private void stubTie() {
+        when(criteriaBuilder.equal(key, 10L)).thenReturn(sameKey);
+        when(criteriaBuilder.greaterThan(id, 5L)).thenReturn(nextId);
+        when(criteriaBuilder.and(sameKey, nextId)).thenReturn(tie);
+        when(criteriaBuilder.or(beyond, tie)).thenReturn(after);
+        when(criteriaBuilder.and(bound, after)).thenReturn(result);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.explorewithme.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffsetPageRequestTest {
+
+    private static final Sort SORT = Sort.by("id");
+
+    @Test
+    void keepsOffsetNotMultipleOfSize() {
+        OffsetPageRequest page = OffsetPageRequest.of(15, 10, SORT);
+
+        assertEquals(15, page.getOffset());
+        assertEquals(10, page.getPageSize());
+        assertEquals(1, page.getPageNumber());
+        assertEquals(SORT, page.getSort());
+    }
+
+    @Test
+    void movesByPageSize() {
+        Pageable page = OffsetPageRequest.of(15, 10, SORT);
+
+        assertEquals(25, page.next().getOffset());
+        assertEquals(5, page.previousOrFirst().getOffset());
+        assertEquals(0, page.first().getOffset());
+        assertEquals(30, page.withPage(3).getOffset());
+        assertEquals(SORT, page.next().getSort());
+    }
+
+    @Test
+    void previousOfFirstPageIsFirst() {
+        Pageable page = OffsetPageRequest.of(5, 10, SORT);
+
+        assertFalse(page.hasPrevious());
+        assertEquals(0, page.previousOrFirst().getOffset());
+        assertTrue(OffsetPageRequest.of(10, 10, SORT).hasPrevious());
+    }
+
+    @Test
+    void largePageNumberDoesNotOverflow() {
+        assertEquals(Integer.MAX_VALUE * 100L, OffsetPageRequest.of(0, 100, SORT).withPage(Integer.MAX_VALUE)
+                .getOffset());
+    }
+
+    @Test
+    void rejectsNegativeOffsetAndEmptyPage() {
+        assertThrows(IllegalArgumentException.class, () -> OffsetPageRequest.of(-1, 10, SORT));
+        assertThrows(IllegalArgumentException.class, () -> OffsetPageRequest.of(0, 0, SORT));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.explorewithme;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа сервиса статистики на страницу событий: прежний путь (тело как Object, Gson обратно в JSON,
+ * Jackson в DTO, id из split uri) против {@link StatisticViewsReader} для JSON и бинарного формата.
+ * Запуск: {@code java -jar statistics/stats-benchmarks/target/benchmarks.jar -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticViewsReaderBenchmark {
+
+    private static final String EVENT_URI = "/events/";
+    private static final TypeReference<List<StatisticViewDto>> VIEWS_TYPE = new TypeReference<>() {
+    };
+
+    @Param("1000")
+    private int events;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Gson gson = new Gson();
+    private List<Long> ids;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        ids = new ArrayList<>(events);
+        List<StatisticViewDto> views = new ArrayList<>(events);
+        for (long id = 1; id <= events; id++) {
+            ids.add(id);
+            views.add(new StatisticViewDto("ewm-main-service", EVENT_URI + id, id * 31));
+        }
+        json = objectMapper.writeValueAsBytes(views);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatisticBinaryCodec.writeViews(views, out);
+        binary = out.toByteArray();
+    }
+
+    @Benchmark
+    public Map<Long, Long> gsonToJackson() throws IOException {
+        Object body = objectMapper.readValue(json, Object.class);
+        List<StatisticViewDto> stats = objectMapper.readValue(gson.toJson(body), VIEWS_TYPE);
+        Map<Long, Long> views = new HashMap<>();
+        for (Long id : ids) {
+            views.put(id, 0L);
+        }
+        for (StatisticViewDto stat : stats) {
+            views.put(Long.parseLong(stat.getUri().split("/", 0)[2]), stat.getHits());
+        }
+        return views;
+    }
+
+    @Benchmark
+    public StatisticViews readerJson() throws IOException {
+        StatisticViews views = new StatisticViews(events);
+        StatisticViewsReader.read(MediaType.APPLICATION_JSON, new ByteArrayInputStream(json), EVENT_URI, views);
+        return views;
+    }
+
+    @Benchmark
+    public StatisticViews readerBinary() throws IOException {
+        StatisticViews views = new StatisticViews(events);
+        StatisticViewsReader.read(StatisticBinaryHttpMessageConverter.MEDIA_TYPE, new ByteArrayInputStream(binary),
+                EVENT_URI, views);
+        return views;
+    }
+}
@@ -0,0 +1,354 @@
+package ru.practicum.explorewithme;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIBuilder;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Неблокирующий клиент сервиса статистики на пуле соединений HttpClient 5. Вызовы возвращают
+ * CompletableFuture, ошибки приходят теми же RestClientException, что и у {@link StatisticClient}.
+ * Если экземпляров сервиса несколько ({@link StatisticShards}), просмотры отправляются в экземпляр своего uri,
+ * а запросы статистики параллельно уходят в нужные экземпляры, и ответы объединяются.
+ */
+@Slf4j
+@Service
+public class AsyncStatisticClient {
+
+    private static final ContentType BINARY = ContentType.create(StatisticBinaryCodec.MEDIA_TYPE);
+    private static final String ACCEPT_BINARY =
+            StatisticBinaryCodec.MEDIA_TYPE + ", " + MediaType.APPLICATION_JSON_VALUE;
+
+    private final StatisticShards shards;
+    private final boolean binary;
+    private final Duration defaultTimeout;
+    private final ObjectMapper objectMapper;
+    private final RequestConfig requestConfig;
+    private final CloseableHttpAsyncClient client;
+    private volatile boolean binaryRequests;
+
+    public AsyncStatisticClient(StatisticShards shards,
+                                @Value("${stats-client.binary:true}") boolean binary,
+                                @Value("${stats-client.async.max-connections:50}") int maxConnections,
+                                @Value("${stats-client.async.keep-alive-ms:30000}") long keepAliveMs,
+                                @Value("${stats-client.async.connect-timeout-ms:1000}") long connectTimeoutMs,
+                                @Value("${stats-client.async.timeout-ms:2000}") long timeoutMs,
+                                @Value("${stats-client.async.io-threads:2}") int ioThreads,
+                                @Value("${stats-client.async.http2:false}") boolean http2,
+                                ObjectMapper objectMapper) {
+        this.shards = shards;
+        this.binary = binary;
+        this.binaryRequests = binary;
+        this.defaultTimeout = Duration.ofMillis(timeoutMs);
+        this.objectMapper = objectMapper;
+
+        this.requestConfig = RequestConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(timeoutMs))
+                .build();
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .build();
+        if (http2) {
+            // HTTP/2 без TLS (h2c, prior knowledge): все запросы мультиплексируются в одном соединении
+            this.client = HttpAsyncClients.customHttp2()
+                    .setDefaultRequestConfig(requestConfig)
+                    .setIOReactorConfig(reactorConfig)
+                    .build();
+        } else {
+            this.client = HttpAsyncClients.custom()
+                    .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                            .setMaxConnTotal(maxConnections)
+                            .setMaxConnPerRoute(maxConnections)
+                            .setConnectionTimeToLive(TimeValue.ofMilliseconds(keepAliveMs))
+                            .build())
+                    .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                    .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                    .setDefaultRequestConfig(requestConfig)
+                    .setIOReactorConfig(reactorConfig)
+                    .build();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        client.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    public CompletableFuture<Void> postHit(StatisticInDto inDto) {
+        return postHits(List.of(inDto), defaultTimeout).thenApply(response -> null);
+    }
+
+    public CompletableFuture<Void> postHits(List<StatisticInDto> inDtos, Duration timeout) {
+        Map<Integer, List<StatisticInDto>> parts = shards.partition(inDtos, StatisticInDto::getUri);
+        if (parts.size() <= 1) {
+            return postHits(shards.url(parts.isEmpty() ? 0 : parts.keySet().iterator().next()), inDtos, timeout);
+        }
+        List<CompletableFuture<Void>> calls = new ArrayList<>(parts.size());
+        parts.forEach((shard, part) -> calls.add(postHits(shards.url(shard), part, timeout)));
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> postHits(String url, List<StatisticInDto> inDtos, Duration timeout) {
+        boolean binaryBody = binaryRequests;
+        String path = inDtos.size() == 1 ? "/hit" : "/hits";
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(URI.create(url + path));
+        try {
+            if (binaryBody) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                StatisticBinaryCodec.writeHits(inDtos, body);
+                builder.setBody(body.toByteArray(), BINARY);
+            } else {
+                Object value = inDtos.size() == 1 ? inDtos.get(0) : inDtos;
+                builder.setBody(objectMapper.writeValueAsBytes(value), ContentType.APPLICATION_JSON);
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return send(builder, timeout)
+                .thenCompose(response -> {
+                    if (binaryBody && response.getCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()) {
+                        log.warn("Сервис статистики не поддерживает бинарный формат, запросы переключены на JSON");
+                        binaryRequests = false;
+                        return postHits(url, inDtos, timeout).thenApply(ignored -> response);
+                    }
+                    return CompletableFuture.completedFuture(checkStatus(response));
+                })
+                .thenApply(response -> null);
+    }
+
+    public CompletableFuture<List<StatisticViewDto>> getStatistics(String start, String end, List<String> uris,
+                                                                   Boolean unique) {
+        return getStatistics(start, end, uris, unique, defaultTimeout);
+    }
+
+    public CompletableFuture<List<StatisticViewDto>> getStatistics(String start, String end, List<String> uris,
+                                                                   Boolean unique, Duration timeout) {
+        List<CompletableFuture<List<StatisticViewDto>>> calls = new ArrayList<>();
+        forShards(uris, (url, part) -> calls.add(send(statsRequest(url, start, end, part, unique), timeout)
+                .thenApply(response -> readStatistics(checkStatus(response)))));
+        if (calls.size() == 1) {
+            return calls.get(0);
+        }
+        return gather(calls).thenApply(StatisticShards::merge);
+    }
+
+    /**
+     * Асинхронный аналог {@link StatisticClient#getViews}. Если ids равен null, возвращаются все uri с префиксом
+     * uriPrefix, по которым были просмотры за период.
+     */
+    public CompletableFuture<StatisticViews> getViews(String start, String end, String uriPrefix,
+                                                      Collection<Long> ids, Boolean unique, Duration timeout) {
+        List<String> uris = null;
+        if (ids != null) {
+            uris = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                uris.add(uriPrefix + id);
+            }
+        }
+        int expectedSize = ids == null ? 0 : ids.size();
+        List<CompletableFuture<StatisticViews>> calls = new ArrayList<>();
+        forShards(uris, (url, part) -> calls.add(send(statsRequest(url, start, end, part, unique), timeout)
+                .thenApply(response -> readViews(response, uriPrefix, part == null ? 0 : part.size()))));
+        return mergeViews(calls, expectedSize);
+    }
+
+    /**
+     * Просмотры uri вида uriPrefix + id, где у каждого id своё начало периода из starts, одним запросом.
+     */
+    public CompletableFuture<StatisticViews> getWindowedViews(Map<Long, String> starts, String end, String uriPrefix,
+                                                              Boolean unique, Duration timeout) {
+        List<StatisticWindowDto> windows = new ArrayList<>(starts.size());
+        starts.forEach((id, start) -> windows.add(new StatisticWindowDto(uriPrefix + id, start)));
+        List<CompletableFuture<StatisticViews>> calls = new ArrayList<>();
+        shards.partition(windows, StatisticWindowDto::getUri).forEach((shard, part) -> {
+            SimpleRequestBuilder builder = SimpleRequestBuilder.post(
+                    URI.create(shards.url(shard) + "/stats/windows"));
+            try {
+                builder.setBody(objectMapper.writeValueAsBytes(new StatisticWindowsQueryDto(end, unique, part)),
+                        ContentType.APPLICATION_JSON);
+            } catch (IOException e) {
+                calls.add(CompletableFuture.failedFuture(e));
+                return;
+            }
+            calls.add(send(builder, timeout).thenApply(response -> readViews(response, uriPrefix, part.size())));
+        });
+        return mergeViews(calls, starts.size());
+    }
+
+    /**
+     * Без списка uri запрос уходит во все экземпляры, со списком - только в те, где лежат эти uri.
+     */
+    private void forShards(List<String> uris, BiConsumer<String, List<String>> call) {
+        if (uris == null || uris.isEmpty()) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                call.accept(shards.url(shard), uris);
+            }
+        } else {
+            shards.partition(uris, Function.identity()).forEach((shard, part) -> call.accept(shards.url(shard), part));
+        }
+    }
+
+    private static CompletableFuture<StatisticViews> mergeViews(List<CompletableFuture<StatisticViews>> calls,
+                                                                int expectedSize) {
+        if (calls.isEmpty()) {
+            return CompletableFuture.completedFuture(new StatisticViews());
+        }
+        if (calls.size() == 1) {
+            return calls.get(0);
+        }
+        return gather(calls).thenApply(responses -> {
+            StatisticViews merged = new StatisticViews(expectedSize);
+            responses.forEach(views -> views.forEach(merged::add));
+            return merged;
+        });
+    }
+
+    private static <T> CompletableFuture<List<T>> gather(List<CompletableFuture<T>> calls) {
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<T> results = new ArrayList<>(calls.size());
+            calls.forEach(call -> results.add(call.join()));
+            return results;
+        });
+    }
+
+    private StatisticViews readViews(SimpleHttpResponse response, String uriPrefix, int expectedSize) {
+        StatisticViews views = new StatisticViews(expectedSize);
+        try {
+            StatisticViewsReader.read(contentType(checkStatus(response)),
+                    new ByteArrayInputStream(response.getBodyBytes()), uriPrefix, views);
+        } catch (IOException e) {
+            throw new ResourceAccessException("Некорректный ответ сервиса статистики", e);
+        }
+        return views;
+    }
+
+    private SimpleRequestBuilder statsRequest(String url, String start, String end, List<String> uris,
+                                              Boolean unique) {
+        try {
+            URIBuilder builder = new URIBuilder(url + "/stats")
+                    .addParameter("start", start)
+                    .addParameter("end", end)
+                    .addParameter("unique", String.valueOf(unique));
+            if (uris != null) {
+                uris.forEach(uri -> builder.addParameter("uris", uri));
+            }
+            return SimpleRequestBuilder.get(builder.build());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Некорректный адрес сервиса статистики: " + url, e);
+        }
+    }
+
+    private CompletableFuture<SimpleHttpResponse> send(SimpleRequestBuilder builder, Duration timeout) {
+        SimpleHttpRequest request = builder
+                .setHeader(HttpHeaders.ACCEPT, binary ? ACCEPT_BINARY : MediaType.APPLICATION_JSON_VALUE)
+                .setRequestConfig(RequestConfig.copy(requestConfig)
+                        .setResponseTimeout(Timeout.ofMilliseconds(timeout.toMillis()))
+                        .build())
+                .build();
+        CompletableFuture<SimpleHttpResponse> result = new CompletableFuture<>();
+        Future<SimpleHttpResponse> call = client.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                result.complete(response);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(new ResourceAccessException(
+                        "Ошибка обращения к сервису статистики: " + e.getMessage(), toIOException(e)));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((response, e) -> {
+            if (e instanceof TimeoutException) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private List<StatisticViewDto> readStatistics(SimpleHttpResponse response) {
+        try {
+            Object body;
+            if (StatisticBinaryHttpMessageConverter.MEDIA_TYPE.isCompatibleWith(contentType(response))) {
+                body = StatisticBinaryCodec.read(new ByteArrayInputStream(response.getBodyBytes()));
+            } else {
+                body = objectMapper.readValue(response.getBodyBytes(), new TypeReference<List<StatisticViewDto>>() {
+                });
+            }
+            @SuppressWarnings("unchecked")
+            List<StatisticViewDto> views = (List<StatisticViewDto>) body;
+            return views;
+        } catch (IOException e) {
+            throw new ResourceAccessException("Некорректный ответ сервиса статистики", e);
+        }
+    }
+
+    private static SimpleHttpResponse checkStatus(SimpleHttpResponse response) {
+        if (response.getCode() >= 200 && response.getCode() < 300) {
+            return response;
+        }
+        byte[] body = response.getBodyBytes();
+        throw new RestClientResponseException("Сервис статистики вернул статус " + response.getCode(),
+                response.getCode(), response.getReasonPhrase(), null, body, StandardCharsets.UTF_8);
+    }
+
+    private static MediaType contentType(SimpleHttpResponse response) {
+        ContentType contentType = response.getContentType();
+        return contentType != null ? MediaType.parseMediaType(contentType.toString()) : null;
+    }
+
+    private static IOException toIOException(Exception e) {
+        return e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+}
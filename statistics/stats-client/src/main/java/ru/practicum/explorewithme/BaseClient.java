@@ -1,52 +1,95 @@
 package ru.practicum.explorewithme;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 
+@Slf4j
 public class BaseClient {
     protected final RestTemplate rest;
+    private final boolean binary;
+    private volatile boolean binaryRequests;
 
     public BaseClient(RestTemplate rest) {
+        this(rest, false);
+    }
+
+    public BaseClient(RestTemplate rest, boolean binary) {
         this.rest = rest;
+        this.binary = binary;
+        this.binaryRequests = binary;
     }
 
     protected ResponseEntity<Object> get(String path, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest((HttpMethod.GET), path, parameters, null);
+        return makeAndSendRequest((HttpMethod.GET), path, parameters, null, null);
+    }
+
+    protected <T> T get(String path, Map<String, Object> parameters, ResponseExtractor<T> extractor) {
+        return rest.execute(path, HttpMethod.GET, request -> request.getHeaders().setAccept(acceptedTypes()),
+                extractor, parameters);
     }
 
     protected <T> ResponseEntity<Object> post(String path, T body) {
-        return makeAndSendRequest(HttpMethod.POST, path, null, body);
+        return makeAndSendRequest(HttpMethod.POST, path, null, body, body.getClass());
+    }
+
+    /**
+     * Тело передаётся вместе с generic-типом, чтобы конвертеры могли проверить тип элементов списка.
+     */
+    protected <T> ResponseEntity<Object> post(String path, T body, ParameterizedTypeReference<T> bodyType) {
+        return makeAndSendRequest(HttpMethod.POST, path, null, body, bodyType.getType());
     }
 
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
-                                                          @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders());
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                          @Nullable Type bodyType) {
+        boolean binaryBody = body != null && binaryRequests;
+        RequestEntity.BodyBuilder builder = parameters != null
+                ? RequestEntity.method(method, path, parameters)
+                : RequestEntity.method(method, path);
+        builder.headers(defaultHeaders(binaryBody));
+        RequestEntity<?> requestEntity = body != null ? builder.body(body, bodyType) : builder.build();
 
         ResponseEntity<Object> statisticsResponse;
         try {
-            if (parameters != null) {
-                statisticsResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                statisticsResponse = rest.exchange(path, method, requestEntity, Object.class);
-            }
+            statisticsResponse = rest.exchange(requestEntity, Object.class);
         } catch (HttpStatusCodeException e) {
+            if (binaryBody && e.getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE) {
+                log.warn("Сервис статистики не поддерживает бинарный формат, запросы переключены на JSON");
+                binaryRequests = false;
+                return makeAndSendRequest(method, path, parameters, body, bodyType);
+            }
             return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
         }
         return prepareGatewayResponse(statisticsResponse);
     }
 
-    private HttpHeaders defaultHeaders() {
+    private HttpHeaders defaultHeaders(boolean binaryBody) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        if (binaryBody) {
+            headers.setContentType(StatisticBinaryHttpMessageConverter.MEDIA_TYPE);
+        } else {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+        headers.setAccept(acceptedTypes());
         return headers;
     }
 
+    private List<MediaType> acceptedTypes() {
+        if (binary) {
+            return List.of(StatisticBinaryHttpMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON);
+        }
+        return List.of(MediaType.APPLICATION_JSON);
+    }
+
     private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
             return response;
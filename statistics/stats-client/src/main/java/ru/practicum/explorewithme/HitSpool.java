@@ -0,0 +1,339 @@
+package ru.practicum.explorewithme;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал неотправленных просмотров на диске. Данные лежат в сегментах dir/&lt;номер&gt;.seg, каждая запись -
+ * длина, CRC32 и пакет просмотров в бинарном формате {@link StatisticBinaryCodec}. Позиция чтения
+ * (сегмент и смещение) сохраняется в файле checkpoint после подтверждения отправки, поэтому после
+ * перезапуска пакет может быть отправлен повторно, но не теряется.
+ * Объём на диске ограничен max-bytes: при переполнении удаляются самые старые сегменты.
+ */
+@Slf4j
+public class HitSpool {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final HitSpoolFsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+
+    private FileChannel writeChannel;
+    private long writeSegment;
+    private long totalBytes;
+    private long lastSync = System.nanoTime();
+    private boolean dirty;
+
+    private long readSegment;
+    private long readOffset;
+    private long pendingSegment;
+    private long pendingOffset;
+    private long droppedBytes;
+
+    public HitSpool(Path dir, long segmentBytes, long maxBytes, HitSpoolFsyncPolicy fsyncPolicy,
+                    long fsyncIntervalMs) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncIntervalMs * 1_000_000;
+        open();
+    }
+
+    /**
+     * Записывает пакет одной записью. Запись всегда идёт в новый после перезапуска сегмент, поэтому
+     * оборванный при падении хвост старого сегмента не смешивается с новыми данными.
+     */
+    public synchronized boolean append(List<StatisticInDto> hits) {
+        if (hits.isEmpty()) {
+            return true;
+        }
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            StatisticBinaryCodec.writeHits(hits, payload);
+            byte[] bytes = payload.toByteArray();
+            long recordBytes = HEADER_BYTES + bytes.length;
+            if (!reserve(recordBytes)) {
+                log.warn("Журнал просмотров {} переполнен, пакет из {} просмотров не записан", dir, hits.size());
+                return false;
+            }
+            if (writeChannel == null || writeChannel.size() >= segmentBytes) {
+                rollSegment();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            ByteBuffer buffer = ByteBuffer.allocate((int) recordBytes);
+            buffer.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+            while (buffer.hasRemaining()) {
+                writeChannel.write(buffer);
+            }
+            segments.merge(writeSegment, recordBytes, Long::sum);
+            totalBytes += recordBytes;
+            dirty = true;
+            if (fsyncPolicy == HitSpoolFsyncPolicy.ALWAYS) {
+                sync();
+            } else {
+                syncIfDue();
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось записать просмотры в журнал {}", dir, e);
+            return false;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        for (var entry : segments.tailMap(readSegment, true).entrySet()) {
+            long from = entry.getKey() == readSegment ? readOffset : 0;
+            if (entry.getValue() > from) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Читает записи начиная с позиции чтения, пока не наберётся maxHits просмотров. Позиция сдвигается
+     * только вызовом {@link #commit()} после успешной отправки.
+     */
+    public synchronized List<StatisticInDto> peek(int maxHits) {
+        List<StatisticInDto> hits = new ArrayList<>();
+        Long segment = segments.ceilingKey(readSegment);
+        long offset = segment != null && segment == readSegment ? readOffset : 0;
+        pendingSegment = readSegment;
+        pendingOffset = readOffset;
+
+        while (segment != null && hits.size() < maxHits) {
+            long size = segments.get(segment);
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                while (offset < size && hits.size() < maxHits) {
+                    int recordBytes = readRecord(channel, offset, size, hits);
+                    if (recordBytes < 0) {
+                        log.warn("Повреждённая запись в сегменте {} журнала просмотров, остаток сегмента пропущен",
+                                segmentPath(segment));
+                        offset = size;
+                    } else {
+                        offset += recordBytes;
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Не удалось прочитать журнал просмотров {}", dir, e);
+                break;
+            }
+            pendingSegment = segment;
+            pendingOffset = offset;
+            if (offset < size) {
+                break;
+            }
+            segment = segments.higherKey(segment);
+            offset = 0;
+        }
+        return hits;
+    }
+
+    public synchronized void commit() {
+        if (pendingSegment < readSegment || pendingSegment == readSegment && pendingOffset <= readOffset) {
+            return;
+        }
+        readSegment = pendingSegment;
+        readOffset = pendingOffset;
+        for (Long segment : new ArrayList<>(segments.headMap(readSegment).keySet())) {
+            deleteSegment(segment);
+        }
+        try {
+            Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+            Files.write(tmp, (readSegment + " " + readOffset).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Не удалось сохранить позицию чтения журнала просмотров {}", dir, e);
+        }
+    }
+
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long droppedBytes() {
+        return droppedBytes;
+    }
+
+    public synchronized void syncIfDue() {
+        if (fsyncPolicy == HitSpoolFsyncPolicy.INTERVAL && System.nanoTime() - lastSync >= fsyncIntervalNanos) {
+            sync();
+        }
+    }
+
+    public synchronized void close() {
+        if (writeChannel == null) {
+            return;
+        }
+        try {
+            if (fsyncPolicy != HitSpoolFsyncPolicy.NEVER) {
+                sync();
+            }
+            writeChannel.close();
+        } catch (IOException e) {
+            log.error("Не удалось закрыть журнал просмотров {}", dir, e);
+        }
+        writeChannel = null;
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(path -> {
+                    String name = path.getFileName().toString();
+                    try {
+                        long size = Files.size(path);
+                        segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), size);
+                    } catch (NumberFormatException | IOException e) {
+                        log.warn("Пропущен посторонний файл {} в журнале просмотров", path);
+                    }
+                });
+            }
+            Path checkpoint = dir.resolve(CHECKPOINT);
+            if (Files.exists(checkpoint)) {
+                String[] position = Files.readString(checkpoint).trim().split(" ");
+                readSegment = Long.parseLong(position[0]);
+                readOffset = Long.parseLong(position[1]);
+            } else if (!segments.isEmpty()) {
+                readSegment = segments.firstKey();
+            }
+            for (Long segment : new ArrayList<>(segments.headMap(readSegment).keySet())) {
+                deleteSegment(segment);
+            }
+            if (!segments.isEmpty() && readSegment < segments.firstKey()) {
+                readSegment = segments.firstKey();
+                readOffset = 0;
+            }
+            totalBytes = segments.values().stream().mapToLong(Long::longValue).sum();
+            writeSegment = segments.isEmpty() ? readSegment : segments.lastKey();
+            if (totalBytes > 0) {
+                log.info("Журнал просмотров {}: {} байт ожидают повторной отправки", dir, totalBytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Не удалось открыть журнал просмотров " + dir, e);
+        }
+    }
+
+    private boolean reserve(long recordBytes) {
+        while (totalBytes + recordBytes > maxBytes) {
+            Long oldest = segments.isEmpty() ? null : segments.firstKey();
+            if (oldest == null || oldest == writeSegment && writeChannel != null) {
+                return false;
+            }
+            log.warn("Журнал просмотров {} превысил {} байт, удалён сегмент {}", dir, maxBytes, oldest);
+            droppedBytes += segments.get(oldest);
+            deleteSegment(oldest);
+            if (readSegment <= oldest) {
+                readSegment = oldest + 1;
+                readOffset = 0;
+            }
+        }
+        return true;
+    }
+
+    private void rollSegment() throws IOException {
+        if (writeChannel != null) {
+            if (fsyncPolicy != HitSpoolFsyncPolicy.NEVER) {
+                sync();
+            }
+            writeChannel.close();
+        }
+        writeSegment = Math.max(segments.isEmpty() ? writeSegment : segments.lastKey(), readSegment) + 1;
+        writeChannel = FileChannel.open(segmentPath(writeSegment), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        segments.put(writeSegment, 0L);
+    }
+
+    /**
+     * Возвращает размер записи вместе с заголовком или -1, если запись оборвана или не сходится CRC.
+     */
+    private int readRecord(FileChannel channel, long offset, long size, List<StatisticInDto> hits)
+            throws IOException {
+        if (size - offset < HEADER_BYTES) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        int length = header.flip().getInt();
+        int checksum = header.getInt();
+        if (length < 0 || length > size - offset - HEADER_BYTES) {
+            return -1;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        if ((int) crc.getValue() != checksum) {
+            return -1;
+        }
+        Object record = StatisticBinaryCodec.read(new ByteArrayInputStream(payload.array()));
+        if (!(record instanceof List)) {
+            return -1;
+        }
+        @SuppressWarnings("unchecked")
+        List<StatisticInDto> recordHits = (List<StatisticInDto>) record;
+        hits.addAll(recordHits);
+        return HEADER_BYTES + length;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Сегмент журнала просмотров оборван");
+            }
+        }
+    }
+
+    private void sync() {
+        if (writeChannel == null || !dirty) {
+            return;
+        }
+        try {
+            writeChannel.force(false);
+            dirty = false;
+            lastSync = System.nanoTime();
+        } catch (IOException e) {
+            log.error("Не удалось сбросить журнал просмотров {} на диск", dir, e);
+        }
+    }
+
+    private void deleteSegment(long segment) {
+        Long size = segments.remove(segment);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(segmentPath(segment));
+        } catch (IOException e) {
+            log.error("Не удалось удалить сегмент {} журнала просмотров", segmentPath(segment), e);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.explorewithme;
+
+public enum HitSpoolFsyncPolicy {
+
+    ALWAYS,
+    INTERVAL,
+    NEVER
+}
@@ -1,43 +1,242 @@
 package ru.practicum.explorewithme;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.http.conn.ConnectionReleaseTrigger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class StatisticClient extends BaseClient {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader DELTA_READER = MAPPER.readerFor(StatisticDeltaBatchDto.class);
+    private static final ParameterizedTypeReference<List<StatisticViewDto>> VIEWS_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<List<StatisticInDto>> HITS_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final StatisticShards shards;
+    private final RestTemplate streamRest;
+
+    /**
+     * subscriptionIdleTimeoutMs - сколько ждать очередной строки потока подписки, включая пустые пакеты
+     * проверки связи, прежде чем считать соединение потерянным. Сервис присылает их раз в
+     * stats.subscriptions.heartbeat-ms, по умолчанию 15 секунд.
+     */
     @Autowired
-    public StatisticClient(@Value("${stats-server.url}") String serviceUrl, RestTemplateBuilder builder) {
+    public StatisticClient(StatisticShards shards,
+                           @Value("${stats-client.binary:true}") boolean binary,
+                           @Value("${stats-client.subscriptions.idle-timeout-ms:45000}") long subscriptionIdleTimeoutMs,
+                           RestTemplateBuilder builder) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serviceUrl + ""))
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(shards.url(0)))
                         .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .additionalMessageConverters(new StatisticBinaryHttpMessageConverter())
+                        .build(),
+                binary
         );
+        this.shards = shards;
+        this.streamRest = builder
+                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                .setReadTimeout(Duration.ofMillis(subscriptionIdleTimeoutMs))
+                .build();
     }
 
     public ResponseEntity<Object> postHit(StatisticInDto inDto) {
-        return post("/hit", inDto);
+        return post(shards.urlOf(inDto.getUri()) + "/hit", inDto);
+    }
+
+    /**
+     * Пакет с uri из разных экземпляров отправляется частями. Если какая-то часть не принята, возвращается её
+     * ответ, поэтому при повторе части, которые уже приняты, будут отправлены ещё раз. Чтобы этого избежать,
+     * пакет можно заранее разложить {@link #partition}.
+     */
+    public ResponseEntity<Object> postHits(List<StatisticInDto> inDtos) {
+        ResponseEntity<Object> result = null;
+        for (Map.Entry<Integer, List<StatisticInDto>> part : shards.partition(inDtos, StatisticInDto::getUri)
+                .entrySet()) {
+            ResponseEntity<Object> response = post(shards.url(part.getKey()) + "/hits", part.getValue(),
+                    HITS_TYPE);
+            if (result == null || result.getStatusCode().is2xxSuccessful()) {
+                result = response;
+            }
+        }
+        return result != null ? result : post(shards.url(0) + "/hits", inDtos, HITS_TYPE);
+    }
+
+    /**
+     * Результат пакетной загрузки из тела ответа {@link #postHits}: бинарный ответ уже разобран в
+     * StatisticBatchResultDto, JSON приходит в виде Map. Null, если тела нет или оно другого вида.
+     */
+    public static StatisticBatchResultDto batchResult(Object body) {
+        if (body == null || body instanceof StatisticBatchResultDto) {
+            return (StatisticBatchResultDto) body;
+        }
+        try {
+            return MAPPER.convertValue(body, StatisticBatchResultDto.class);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Раскладывает просмотры на пакеты, каждый из которых уходит в один экземпляр сервиса статистики.
+     */
+    public Collection<List<StatisticInDto>> partition(List<StatisticInDto> inDtos) {
+        if (shards.size() == 1) {
+            return List.of(inDtos);
+        }
+        return shards.partition(inDtos, StatisticInDto::getUri).values();
     }
 
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * При нескольких экземплярах ответы запрашиваются по очереди и объединяются, параллельный вариант -
+     * {@link AsyncStatisticClient#getStatistics}.
+     */
     public ResponseEntity<Object> getStatistics(String start, String end, List<String> uris, Boolean unique) {
-        StringBuilder url = new StringBuilder();
-        for (String uri : uris) {
-            url.append("&uris=").append(uri);
+        Map<String, Object> params = Map.of(
+                "start", start,
+                "end", end,
+                "unique", unique
+        );
+        if (shards.size() == 1) {
+            return get(shards.url(0) + "/stats?start={start}&end={end}" + uriParams(uris) + "&unique={unique}",
+                    params);
+        }
+        List<List<StatisticViewDto>> responses = new ArrayList<>();
+        forShards(uris, (url, part) -> responses.add(rest.exchange(
+                url + "/stats?start={start}&end={end}" + uriParams(part) + "&unique={unique}", HttpMethod.GET,
+                new HttpEntity<>(jsonHeaders()), VIEWS_TYPE, params).getBody()));
+        return ResponseEntity.ok(StatisticShards.merge(responses));
+    }
+
+    /**
+     * Запрашивает статистику по uri вида uriPrefix + id и сразу раскладывает ответ в {@link StatisticViews}
+     * по id, минуя промежуточные DTO и строки.
+     */
+    public StatisticViews getViews(String start, String end, String uriPrefix, Collection<Long> ids, Boolean unique) {
+        List<String> uris = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            uris.add(uriPrefix + id);
         }
         Map<String, Object> params = Map.of(
                 "start", start,
                 "end", end,
                 "unique", unique
         );
-        return get("/stats?start={start}&end={end}" + url + "&unique={unique}", params);
+        StatisticViews views = new StatisticViews(ids.size());
+        forShards(uris, (url, part) -> {
+            StatisticViews shardViews = get(url + "/stats?start={start}&end={end}" + uriParams(part) +
+                    "&unique={unique}", params, response -> {
+                StatisticViews read = new StatisticViews(part.size());
+                StatisticViewsReader.read(response.getHeaders().getContentType(), response.getBody(), uriPrefix,
+                        read);
+                return read;
+            });
+            if (shardViews != null) {
+                shardViews.forEach(views::add);
+            }
+        });
+        return views;
+    }
+
+    /**
+     * Подписывается на прирост статистики uri с префиксом uriPrefix, посещения до since не учитываются.
+     * Блокирует поток, пока сервис статистики держит соединение, и передаёт каждый пакет в consumer.
+     * Пустой пакет - проверка связи, сервис присылает его, если новых просмотров не было. Подписка
+     * открывается к одному экземпляру shard, для всех uri нужна подписка к каждому из {@link #shardCount()}.
+     * Если за stats-client.subscriptions.idle-timeout-ms не пришло ни одной строки, соединение обрывается
+     * с {@link org.springframework.web.client.ResourceAccessException}.
+     */
+    public void subscribe(int shard, String uriPrefix, String since, Consumer<StatisticDeltaBatchDto> consumer) {
+        Map<String, Object> params = Map.of(
+                "uriPrefix", uriPrefix,
+                "since", since
+        );
+        streamRest.execute(shards.url(shard) + "/stats/subscribe?uriPrefix={uriPrefix}&since={since}",
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(NDJSON)),
+                response -> {
+                    InputStream body = response.getBody();
+                    try (MappingIterator<StatisticDeltaBatchDto> batches = DELTA_READER.readValues(body)) {
+                        try {
+                            while (batches.hasNextValue()) {
+                                consumer.accept(batches.nextValue());
+                            }
+                        } catch (IOException e) {
+                            abort(body);
+                            throw e;
+                        }
+                    }
+                    return null;
+                }, params);
+    }
+
+    /**
+     * Закрытие ответа дочитывает поток до конца, и после тайм-аута чтения пришлось бы ждать ещё один.
+     * Поэтому соединение сначала обрывается.
+     */
+    private static void abort(InputStream body) throws IOException {
+        if (body instanceof ConnectionReleaseTrigger) {
+            ((ConnectionReleaseTrigger) body).abortConnection();
+        }
+    }
+
+    private void forShards(List<String> uris, BiConsumer<String, List<String>> call) {
+        if (uris == null || uris.isEmpty()) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                call.accept(shards.url(shard), uris);
+            }
+        } else {
+            shards.partition(uris, Function.identity()).forEach((shard, part) -> call.accept(shards.url(shard), part));
+        }
+    }
+
+    private static String uriParams(List<String> uris) {
+        StringBuilder url = new StringBuilder();
+        if (uris != null) {
+            for (String uri : uris) {
+                url.append("&uris=").append(uri);
+            }
+        }
+        return url.toString();
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        return headers;
     }
 }
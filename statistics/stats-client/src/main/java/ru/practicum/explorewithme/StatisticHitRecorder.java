@@ -0,0 +1,369 @@
+package ru.practicum.explorewithme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отправляет просмотры в сервис статистики пакетами из фонового потока. Если включён журнал
+ * (stats-client.spool.enabled или политика SPILL), пакеты, которые не удалось доставить, записываются
+ * на диск и отправляются повторно с экспоненциальной задержкой, когда сервис статистики снова отвечает.
+ * При stats-client.hits.aggregate одинаковые (app, uri, ip) в пределах одной секунды за окно aggregate-window-ms
+ * уходят одной записью с count: границы запросов /stats кратны секунде, поэтому итоговые числа не меняются.
+ */
+@Slf4j
+@Service
+public class StatisticHitRecorder {
+
+    private final StatisticClient statisticClient;
+    private final BlockingQueue<StatisticInDto> queue;
+    private final BlockingQueue<StatisticInDto> overflow;
+    private final HitOverflowPolicy overflowPolicy;
+    private final HitSpool spool;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final boolean aggregate;
+    private final long aggregateWindowMs;
+    private final long blockTimeoutMs;
+    private final long replayBackoffMs;
+    private final long replayMaxBackoffMs;
+    private final Counter droppedHits;
+    private final Counter spilledHits;
+    private final Counter sentHits;
+    private final Counter failedHits;
+    private final Counter rejectedHits;
+    private final Thread flusher;
+    private volatile boolean running = true;
+    private long replayBackoff;
+    private long nextReplayAt;
+
+    public StatisticHitRecorder(StatisticClient statisticClient,
+                                MeterRegistry meterRegistry,
+                                @Value("${stats-client.hits.queue-capacity:10000}") int queueCapacity,
+                                @Value("${stats-client.hits.batch-size:100}") int batchSize,
+                                @Value("${stats-client.hits.flush-interval-ms:1000}") long flushIntervalMs,
+                                @Value("${stats-client.hits.overflow-policy:DROP}") HitOverflowPolicy overflowPolicy,
+                                @Value("${stats-client.hits.block-timeout-ms:50}") long blockTimeoutMs,
+                                @Value("${stats-client.hits.aggregate:false}") boolean aggregate,
+                                @Value("${stats-client.hits.aggregate-window-ms:1000}") long aggregateWindowMs,
+                                @Value("${stats-client.spool.enabled:false}") boolean spoolEnabled,
+                                @Value("${stats-client.spool.dir:stats-hits-spool}") String spoolDir,
+                                @Value("${stats-client.spool.segment-size-mb:16}") long segmentSizeMb,
+                                @Value("${stats-client.spool.max-size-mb:256}") long maxSizeMb,
+                                @Value("${stats-client.spool.fsync:INTERVAL}") HitSpoolFsyncPolicy fsyncPolicy,
+                                @Value("${stats-client.spool.fsync-interval-ms:1000}") long fsyncIntervalMs,
+                                @Value("${stats-client.spool.replay-backoff-ms:1000}") long replayBackoffMs,
+                                @Value("${stats-client.spool.replay-max-backoff-ms:60000}") long replayMaxBackoffMs) {
+        this.statisticClient = statisticClient;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflow = overflowPolicy == HitOverflowPolicy.SPILL ? new ArrayBlockingQueue<>(queueCapacity) : null;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.aggregate = aggregate;
+        this.aggregateWindowMs = aggregateWindowMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.replayBackoffMs = replayBackoffMs;
+        this.replayMaxBackoffMs = replayMaxBackoffMs;
+        this.replayBackoff = replayBackoffMs;
+        this.nextReplayAt = System.nanoTime();
+        this.spool = spoolEnabled || overflowPolicy == HitOverflowPolicy.SPILL
+                ? new HitSpool(Path.of(spoolDir), segmentSizeMb << 20, maxSizeMb << 20, fsyncPolicy, fsyncIntervalMs)
+                : null;
+        Gauge.builder("stats.client.hits.queue.depth", queue, BlockingQueue::size)
+                .description("Количество просмотров, ожидающих отправки")
+                .register(meterRegistry);
+        this.droppedHits = meterRegistry.counter("stats.client.hits.dropped");
+        this.spilledHits = meterRegistry.counter("stats.client.hits.spilled");
+        this.sentHits = meterRegistry.counter("stats.client.hits.sent");
+        this.failedHits = meterRegistry.counter("stats.client.hits.failed");
+        this.rejectedHits = meterRegistry.counter("stats.client.hits.rejected");
+        if (spool != null) {
+            Gauge.builder("stats.client.spool.bytes", spool, HitSpool::sizeBytes)
+                    .description("Объём журнала неотправленных просмотров")
+                    .register(meterRegistry);
+            FunctionCounter.builder("stats.client.spool.dropped.bytes", spool, HitSpool::droppedBytes)
+                    .description("Объём журнала, удалённый при переполнении")
+                    .register(meterRegistry);
+        }
+        this.flusher = new Thread(this::runFlusher, "stats-hit-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(flushIntervalMs);
+        List<StatisticInDto> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        deliver(rest);
+        if (spool != null) {
+            spillOverflow();
+            spool.close();
+        }
+    }
+
+    public void record(StatisticInDto hit) {
+        if (queue.offer(hit)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    if (queue.offer(hit, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                droppedHits.increment();
+                break;
+            case SPILL:
+                if (!overflow.offer(hit)) {
+                    droppedHits.increment();
+                }
+                break;
+            case DROP:
+            default:
+                droppedHits.increment();
+        }
+    }
+
+    private void runFlusher() {
+        List<StatisticInDto> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                if (aggregate) {
+                    collectAggregated(batch);
+                } else {
+                    collectBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            deliver(batch);
+            batch.clear();
+            if (spool != null) {
+                spillOverflow();
+                replay();
+                spool.syncIfDue();
+            }
+        }
+        deliver(batch);
+    }
+
+    /**
+     * Пока очередь не заполняется, отправляет из журнала пакеты по batchSize. После неудачной попытки
+     * следующая откладывается, задержка удваивается до replay-max-backoff-ms. Если экземпляров сервиса
+     * статистики несколько и часть из них не ответила, их просмотры дописываются в конец журнала, а
+     * принятые другими экземплярами повторно не отправляются.
+     */
+    private void replay() {
+        while (running && queue.size() < batchSize && !spool.isEmpty()
+                && System.nanoTime() - nextReplayAt >= 0) {
+            List<StatisticInDto> hits = spool.peek(batchSize);
+            List<StatisticInDto> unavailable = new ArrayList<>();
+            for (List<StatisticInDto> part : statisticClient.partition(hits)) {
+                if (send(part) == SendResult.UNAVAILABLE) {
+                    unavailable.addAll(part);
+                }
+            }
+            if (unavailable.size() < hits.size() && (unavailable.isEmpty() || spool.append(unavailable))) {
+                spool.commit();
+            }
+            if (!unavailable.isEmpty()) {
+                nextReplayAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(replayBackoff);
+                log.debug("Повторная отправка журнала просмотров отложена на {} мс", replayBackoff);
+                replayBackoff = Math.min(replayBackoff * 2, replayMaxBackoffMs);
+                return;
+            }
+            replayBackoff = replayBackoffMs;
+        }
+    }
+
+    private void deliver(List<StatisticInDto> batch) {
+        for (List<StatisticInDto> part : statisticClient.partition(batch)) {
+            if (send(part) != SendResult.UNAVAILABLE) {
+                continue;
+            }
+            if (spool != null && spool.append(part)) {
+                spilledHits.increment(weight(part));
+            } else {
+                failedHits.increment(weight(part));
+            }
+        }
+    }
+
+    /**
+     * При политике SPILL просмотры, не поместившиеся в очередь, копятся в отдельном буфере того же размера и
+     * записываются в журнал пакетами из фонового потока, чтобы запрос не ждал блокировки и fsync журнала.
+     */
+    private void spillOverflow() {
+        if (overflow == null) {
+            return;
+        }
+        List<StatisticInDto> hits = new ArrayList<>(batchSize);
+        while (overflow.drainTo(hits, batchSize) > 0) {
+            if (spool.append(hits)) {
+                spilledHits.increment(weight(hits));
+            } else {
+                droppedHits.increment(weight(hits));
+            }
+            hits.clear();
+        }
+    }
+
+    /**
+     * Копит просмотры в течение окна, пока не наберётся batchSize различных записей. Запись, набравшая
+     * {@link StatisticInDto#MAX_COUNT} просмотров, уходит в пакет, и счёт для того же ключа начинается заново.
+     */
+    private void collectAggregated(List<StatisticInDto> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(aggregateWindowMs);
+        Map<HitKey, StatisticInDto> window = new LinkedHashMap<>();
+        List<StatisticInDto> drained = new ArrayList<>(batchSize);
+        try {
+            while (window.size() < batchSize) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                StatisticInDto hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (hit == null) {
+                    return;
+                }
+                drained.add(hit);
+                queue.drainTo(drained, batchSize - window.size() - 1);
+                for (StatisticInDto next : drained) {
+                    LocalDateTime second = next.getTimestamp() == null
+                            ? null
+                            : next.getTimestamp().truncatedTo(ChronoUnit.SECONDS);
+                    HitKey key = new HitKey(next.getApp(), next.getUri(), next.getIp(), second);
+                    StatisticInDto existing = window.get(key);
+                    if (existing != null && existing.weight() + next.weight() <= StatisticInDto.MAX_COUNT) {
+                        existing.setCount(existing.weight() + next.weight());
+                        continue;
+                    }
+                    if (existing != null) {
+                        batch.add(existing);
+                    }
+                    window.put(key,
+                            new StatisticInDto(next.getApp(), next.getUri(), next.getIp(), second, next.getCount()));
+                }
+                drained.clear();
+            }
+        } finally {
+            batch.addAll(window.values());
+        }
+    }
+
+    private void collectBatch(List<StatisticInDto> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            StatisticInDto hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (hit == null) {
+                return;
+            }
+            batch.add(hit);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    /**
+     * Ответ 4xx означает, что пакет не будет принят и при повторе, такие просмотры считаются потерянными.
+     * Ошибки соединения и 5xx говорят о недоступности сервиса, пакет имеет смысл отправить ещё раз.
+     * Отдельные просмотры, отклонённые в успешном ответе, тоже не повторяются и учитываются в
+     * stats.client.hits.rejected.
+     */
+    private SendResult send(List<StatisticInDto> batch) {
+        if (batch.isEmpty()) {
+            return SendResult.SENT;
+        }
+        try {
+            ResponseEntity<Object> response = statisticClient.postHits(batch);
+            HttpStatus status = response.getStatusCode();
+            if (status.is2xxSuccessful()) {
+                long rejected = countRejected(batch, StatisticClient.batchResult(response.getBody()));
+                sentHits.increment(weight(batch) - rejected);
+                rejectedHits.increment(rejected);
+                return SendResult.SENT;
+            }
+            if (status.is4xxClientError()) {
+                failedHits.increment(weight(batch));
+                log.warn("Сервис статистики отклонил пакет просмотров со статусом {}", status);
+                return SendResult.REJECTED;
+            }
+            log.warn("Сервис статистики вернул статус {} на пакет просмотров", status);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить пакет просмотров в сервис статистики: {}", e.getMessage());
+        }
+        return SendResult.UNAVAILABLE;
+    }
+
+    private long countRejected(List<StatisticInDto> batch, StatisticBatchResultDto result) {
+        if (result == null || result.getRejected() == null || result.getRejected().isEmpty()) {
+            return 0;
+        }
+        long rejected = 0;
+        for (StatisticRejectionDto rejection : result.getRejected()) {
+            if (rejection.getIndex() >= 0 && rejection.getIndex() < batch.size()) {
+                rejected += batch.get(rejection.getIndex()).weight();
+            }
+        }
+        log.warn("Сервис статистики отклонил {} из {} записей пакета просмотров, например: {}",
+                result.getRejected().size(), batch.size(), result.getRejected().get(0).getReason());
+        return rejected;
+    }
+
+    private static long weight(List<StatisticInDto> batch) {
+        long weight = 0;
+        for (StatisticInDto hit : batch) {
+            weight += hit.weight();
+        }
+        return weight;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class HitKey {
+        private final String app;
+        private final String uri;
+        private final String ip;
+        private final LocalDateTime second;
+    }
+
+    private enum SendResult {
+        SENT, REJECTED, UNAVAILABLE
+    }
+}
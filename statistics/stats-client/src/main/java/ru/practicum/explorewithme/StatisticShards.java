@@ -0,0 +1,107 @@
+package ru.practicum.explorewithme;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Экземпляры сервиса статистики (stats-server.shards, по умолчанию один stats-server.url). Все просмотры
+ * одного uri хранятся в одном экземпляре, он выбирается jump consistent hash от uri, поэтому уникальные
+ * посетители uri считаются целиком в одном месте. При добавлении экземпляра в конец списка на него
+ * переезжает только его доля uri, остальные остаются на прежних местах.
+ */
+@Component
+public class StatisticShards {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<String> urls;
+
+    public StatisticShards(@Value("${stats-server.shards:${stats-server.url}}") List<String> urls) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("Не задан ни один экземпляр сервиса статистики");
+        }
+        this.urls = List.copyOf(urls);
+    }
+
+    public int size() {
+        return urls.size();
+    }
+
+    public String url(int shard) {
+        return urls.get(shard);
+    }
+
+    /**
+     * Просмотр без uri сервис статистики всё равно отклонит, такой запрос уходит в первый экземпляр.
+     */
+    public int shardOf(String uri) {
+        return urls.size() == 1 || uri == null ? 0 : jumpHash(fnv(uri), urls.size());
+    }
+
+    public String urlOf(String uri) {
+        return urls.get(shardOf(uri));
+    }
+
+    /**
+     * Раскладывает элементы по экземплярам, порядок элементов внутри экземпляра сохраняется.
+     */
+    public <T> Map<Integer, List<T>> partition(Collection<T> items, Function<T, String> uri) {
+        Map<Integer, List<T>> parts = new LinkedHashMap<>();
+        for (T item : items) {
+            parts.computeIfAbsent(shardOf(uri.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return parts;
+    }
+
+    /**
+     * Объединяет ответы экземпляров: просмотры одной пары (app, uri) складываются, результат отсортирован по
+     * убыванию. Пока uri не переезжал между экземплярами, пара приходит только из одного из них, и уникальные
+     * просмотры складывать не приходится.
+     */
+    public static List<StatisticViewDto> merge(Collection<List<StatisticViewDto>> responses) {
+        Map<List<String>, Long> hits = new HashMap<>();
+        for (List<StatisticViewDto> response : responses) {
+            for (StatisticViewDto view : response) {
+                hits.merge(Arrays.asList(view.getApp(), view.getUri()), view.getHits(), Long::sum);
+            }
+        }
+        List<StatisticViewDto> merged = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> merged.add(new StatisticViewDto(key.get(0), key.get(1), count)));
+        merged.sort(Comparator.comparingLong(StatisticViewDto::getHits).reversed());
+        return merged;
+    }
+
+    private static long fnv(String uri) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < uri.length(); i++) {
+            hash ^= uri.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Jump consistent hash (Lamping, Veach).
+     */
+    private static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.explorewithme;
+
+/**
+ * Число просмотров по id сущности: открытая адресация на примитивных массивах, без упаковки ключей и значений.
+ * Для отсутствующего id возвращается 0.
+ */
+public final class StatisticViews {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean stale;
+
+    public StatisticViews() {
+        this(0);
+    }
+
+    public StatisticViews(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Поддерживаются неотрицательные id: в массиве ключей хранится id + 1, чтобы 0 означал свободную ячейку.
+     */
+    public void put(long id, long views) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Отрицательный id: " + id);
+        }
+        int slot = slot(id);
+        if (keys[slot] == 0) {
+            keys[slot] = id + 1;
+            size++;
+        }
+        values[slot] = views;
+        if (size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    public void add(long id, long views) {
+        put(id, get(id) + views);
+    }
+
+    public long get(long id) {
+        if (id < 0) {
+            return 0;
+        }
+        int slot = slot(id);
+        return keys[slot] == 0 ? 0 : values[slot];
+    }
+
+    public boolean contains(long id) {
+        return id >= 0 && keys[slot(id)] != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Значения взяты из последних известных (или нули), потому что сервис статистики не ответил.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    public void forEach(StatisticViewCountConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i] - 1, values[i]);
+            }
+        }
+    }
+
+    private int slot(long id) {
+        long key = id + 1;
+        int mask = keys.length - 1;
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i] - 1, oldValues[i]);
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.explorewithme;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+final class StatisticViewsReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private StatisticViewsReader() {
+    }
+
+    static void read(MediaType contentType, InputStream body, String uriPrefix, StatisticViews views)
+            throws IOException {
+        if (contentType != null && contentType.isCompatibleWith(StatisticBinaryHttpMessageConverter.MEDIA_TYPE)) {
+            StatisticBinaryCodec.readViewCounts(body, uriPrefix, views::put);
+        } else {
+            readJsonViews(body, uriPrefix, views);
+        }
+    }
+
+    private static void readJsonViews(InputStream body, String uriPrefix, StatisticViews views) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Ожидался массив записей статистики");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long id = -1;
+                long hits = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("uri".equals(field) && value == JsonToken.VALUE_STRING) {
+                        id = parseId(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(),
+                                uriPrefix);
+                    } else if ("hits".equals(field)) {
+                        hits = parser.getValueAsLong();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (id >= 0) {
+                    views.put(id, hits);
+                }
+            }
+        }
+    }
+
+    private static long parseId(char[] chars, int offset, int length, String prefix) {
+        if (length <= prefix.length() || length - prefix.length() > 18) {
+            return -1;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (chars[offset + i] != prefix.charAt(i)) {
+                return -1;
+            }
+        }
+        long id = 0;
+        for (int i = offset + prefix.length(); i < offset + length; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            id = id * 10 + digit;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitSpoolTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2022, 10, 1, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void committedPositionSurvivesRestart() {
+        HitSpool spool = open(1 << 20);
+        spool.append(List.of(hit(1), hit(2)));
+        spool.append(List.of(hit(3)));
+
+        assertEquals(List.of(hit(1), hit(2)), spool.peek(2));
+        spool.commit();
+        spool.close();
+
+        HitSpool reopened = open(1 << 20);
+        assertEquals(List.of(hit(3)), reopened.peek(10));
+        reopened.commit();
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    void uncommittedPeekIsRepeated() {
+        HitSpool spool = open(1 << 20);
+        spool.append(List.of(hit(1)));
+
+        assertEquals(List.of(hit(1)), spool.peek(10));
+        assertEquals(List.of(hit(1)), spool.peek(10));
+        spool.close();
+    }
+
+    @Test
+    void recordWithBadChecksumSkipsRestOfSegment() throws IOException {
+        HitSpool spool = open(1);
+        spool.append(List.of(hit(1)));
+        spool.append(List.of(hit(2)));
+        spool.close();
+
+        List<Path> segments = segments();
+        assertEquals(2, segments.size());
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(0).toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        HitSpool reopened = open(1);
+        assertEquals(List.of(hit(2)), reopened.peek(10));
+        reopened.close();
+    }
+
+    @Test
+    void truncatedTailIsSkippedAndNewHitsGoToNextSegment() throws IOException {
+        HitSpool spool = open(1 << 20);
+        spool.append(List.of(hit(1)));
+        spool.append(List.of(hit(2)));
+        spool.close();
+
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        HitSpool reopened = open(1 << 20);
+        reopened.append(List.of(hit(3)));
+        assertEquals(2, segments().size());
+        assertEquals(List.of(hit(1), hit(3)), reopened.peek(10));
+        reopened.commit();
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    void oldestSegmentIsDroppedWhenFull() {
+        HitSpool spool = open(1);
+        spool.append(List.of(hit(1)));
+        long recordBytes = spool.sizeBytes();
+        spool.close();
+
+        HitSpool limited = new HitSpool(dir, 1, recordBytes * 2, HitSpoolFsyncPolicy.NEVER, 0);
+        limited.append(List.of(hit(2)));
+        limited.append(List.of(hit(3)));
+
+        assertEquals(recordBytes, limited.droppedBytes());
+        assertEquals(List.of(hit(2), hit(3)), limited.peek(10));
+        limited.close();
+    }
+
+    private HitSpool open(long segmentBytes) {
+        return new HitSpool(dir, segmentBytes, 1 << 20, HitSpoolFsyncPolicy.ALWAYS, 0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static StatisticInDto hit(int id) {
+        return new StatisticInDto("ewm", "/events/" + id, "10.0.0." + id, TIME);
+    }
+}
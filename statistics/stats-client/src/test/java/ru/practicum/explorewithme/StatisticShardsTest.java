@@ -0,0 +1,109 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatisticShardsTest {
+
+    private static final int URIS = 10_000;
+
+    @Test
+    void shardsAreStableAcrossReleases() {
+        // значения посчитаны отдельно: смена хеша переселила бы uri между экземплярами
+        assertEquals(3, shards(5).shardOf("/events/1"));
+        assertEquals(2, shards(5).shardOf("/events/2"));
+        assertEquals(9, shards(10).shardOf("/events/2"));
+        assertEquals(5, shards(10).shardOf("/events"));
+        assertEquals(2, shards(3).shardOf("/events/2"));
+    }
+
+    @Test
+    void addedShardTakesOnlyItsShare() {
+        for (int size = 1; size < 8; size++) {
+            StatisticShards before = shards(size);
+            StatisticShards after = shards(size + 1);
+            int moved = 0;
+            for (int i = 0; i < URIS; i++) {
+                String uri = "/events/" + i;
+                int shard = after.shardOf(uri);
+                if (shard != before.shardOf(uri)) {
+                    assertEquals(size, shard);
+                    moved++;
+                }
+            }
+            double expected = (double) URIS / (size + 1);
+            assertTrue(Math.abs(moved - expected) < expected * 0.1, "переехало " + moved + " из " + URIS);
+        }
+    }
+
+    @Test
+    void spreadsUrisEvenly() {
+        StatisticShards shards = shards(4);
+        int[] counts = new int[4];
+        for (int i = 0; i < URIS; i++) {
+            counts[shards.shardOf("/events/" + i)]++;
+        }
+        for (int count : counts) {
+            assertTrue(Math.abs(count - URIS / 4) < URIS / 40, "на экземпляре " + count + " uri");
+        }
+    }
+
+    @Test
+    void uriWithoutValueGoesToFirstShard() {
+        assertEquals(0, shards(3).shardOf(null));
+    }
+
+    @Test
+    void partitionKeepsOrderWithinShard() {
+        StatisticShards shards = shards(3);
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            uris.add("/events/" + i);
+        }
+
+        Map<Integer, List<String>> parts = shards.partition(uris, uri -> uri);
+
+        int total = 0;
+        for (Map.Entry<Integer, List<String>> part : parts.entrySet()) {
+            int previous = -1;
+            for (String uri : part.getValue()) {
+                assertEquals(part.getKey(), shards.shardOf(uri));
+                int index = uris.indexOf(uri);
+                assertTrue(index > previous);
+                previous = index;
+            }
+            total += part.getValue().size();
+        }
+        assertEquals(uris.size(), total);
+    }
+
+    @Test
+    void mergeSumsHitsOfSamePair() {
+        List<StatisticViewDto> merged = StatisticShards.merge(List.of(
+                List.of(new StatisticViewDto("ewm", "/events/1", 3L), new StatisticViewDto("ewm", "/events/2", 1L)),
+                List.of(new StatisticViewDto("ewm", "/events/1", 2L))));
+
+        assertEquals(List.of(new StatisticViewDto("ewm", "/events/1", 5L),
+                new StatisticViewDto("ewm", "/events/2", 1L)), merged);
+    }
+
+    @Test
+    void requiresShard() {
+        assertThrows(IllegalArgumentException.class, () -> new StatisticShards(List.of()));
+    }
+
+    private static StatisticShards shards(int size) {
+        List<String> urls = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            urls.add("http://stats-" + i + ":9090");
+        }
+        return new StatisticShards(urls);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatisticViewsReaderTest {
+
+    @Test
+    void readsJsonViewsAndSkipsForeignUris() throws IOException {
+        String json = "[{\"app\":\"ewm\",\"uri\":\"/events/12\",\"hits\":7}," +
+                "{\"app\":\"ewm\",\"uri\":null,\"hits\":3}," +
+                "{\"app\":\"ewm\",\"hits\":4}," +
+                "{\"app\":\"ewm\",\"uri\":42,\"hits\":5}," +
+                "{\"app\":\"ewm\",\"uri\":\"/compilations/13\",\"hits\":6}," +
+                "{\"hits\":9,\"uri\":\"/events/14\",\"extra\":{\"nested\":[1,2]}}]";
+        StatisticViews views = new StatisticViews();
+
+        StatisticViewsReader.read(MediaType.APPLICATION_JSON,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "/events/", views);
+
+        assertEquals(2, views.size());
+        assertEquals(7, views.get(12));
+        assertEquals(9, views.get(14));
+        assertEquals(0, views.get(13));
+    }
+}
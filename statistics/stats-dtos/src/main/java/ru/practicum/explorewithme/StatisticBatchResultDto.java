@@ -0,0 +1,16 @@
+package ru.practicum.explorewithme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatisticBatchResultDto {
+
+    private int accepted;
+    private List<StatisticRejectionDto> rejected;
+}
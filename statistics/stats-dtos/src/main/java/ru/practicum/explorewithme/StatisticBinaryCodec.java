@@ -0,0 +1,326 @@
+package ru.practicum.explorewithme;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Бинарный формат обмена статистикой: байт типа сообщения, число записей и сами записи.
+ * Целые числа пишутся varint, время - zigzag-миллисекундами от эпохи (LocalDateTime трактуется как UTC),
+ * строки - длиной и UTF-8 байтами; повторная строка внутри сообщения заменяется ссылкой на первую.
+ */
+public final class StatisticBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-ewm-stats";
+
+    static final int HITS = 1;
+    static final int VIEWS = 2;
+    static final int BATCH_RESULT = 3;
+    static final int WEIGHTED_HITS = 4;
+
+    private StatisticBinaryCodec() {
+    }
+
+    /**
+     * Если хотя бы у одного просмотра задан count, пишется сообщение WEIGHTED_HITS: у каждой записи добавляется
+     * count (0 - не задан). Иначе формат совпадает с прежним HITS.
+     */
+    public static void writeHits(List<StatisticInDto> hits, OutputStream out) throws IOException {
+        Writer writer = new Writer(out);
+        boolean weighted = hits.stream().anyMatch(hit -> hit.getCount() != null);
+        writer.writeVarint(weighted ? WEIGHTED_HITS : HITS);
+        writer.writeVarint(hits.size());
+        for (StatisticInDto hit : hits) {
+            writer.writeString(hit.getApp());
+            writer.writeString(hit.getUri());
+            writer.writeString(hit.getIp());
+            writer.writeVarint(hit.getTimestamp() == null ? 0 : zigzag(toMillis(hit.getTimestamp())) + 1);
+            if (weighted) {
+                writer.writeVarint(hit.getCount() == null ? 0 : zigzag(hit.getCount()) + 1);
+            }
+        }
+        writer.flush();
+    }
+
+    public static void writeViews(List<StatisticViewDto> views, OutputStream out) throws IOException {
+        Writer writer = new Writer(out);
+        writer.writeVarint(VIEWS);
+        writer.writeVarint(views.size());
+        for (StatisticViewDto view : views) {
+            writer.writeString(view.getApp());
+            writer.writeString(view.getUri());
+            writer.writeVarint(view.getHits());
+        }
+        writer.flush();
+    }
+
+    public static void writeBatchResult(StatisticBatchResultDto result, OutputStream out) throws IOException {
+        Writer writer = new Writer(out);
+        writer.writeVarint(BATCH_RESULT);
+        writer.writeVarint(result.getAccepted());
+        writer.writeVarint(result.getRejected().size());
+        for (StatisticRejectionDto rejection : result.getRejected()) {
+            writer.writeVarint(rejection.getIndex());
+            writer.writeString(rejection.getReason());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Возвращает List&lt;StatisticInDto&gt;, List&lt;StatisticViewDto&gt; или StatisticBatchResultDto
+     * в зависимости от типа сообщения.
+     */
+    public static Object read(InputStream in) throws IOException {
+        Reader reader = new Reader(new BufferedInputStream(in));
+        int type = (int) reader.readVarint();
+        switch (type) {
+            case HITS:
+                return readHits(reader, false);
+            case WEIGHTED_HITS:
+                return readHits(reader, true);
+            case VIEWS:
+                return readViews(reader);
+            case BATCH_RESULT:
+                return readBatchResult(reader);
+            default:
+                throw new IOException("Неизвестный тип бинарного сообщения статистики: " + type);
+        }
+    }
+
+    /**
+     * Читает сообщение со статистикой, не создавая строк: из uri вида uriPrefix + число сразу извлекается id,
+     * записи с другими uri пропускаются.
+     */
+    public static void readViewCounts(InputStream in, String uriPrefix, StatisticViewCountConsumer consumer)
+            throws IOException {
+        Reader reader = new Reader(new BufferedInputStream(in));
+        byte[] prefix = uriPrefix.getBytes(StandardCharsets.UTF_8);
+        int type = (int) reader.readVarint();
+        if (type != VIEWS) {
+            throw new IOException("Ожидалось сообщение со статистикой, получен тип: " + type);
+        }
+        int size = reader.readSize();
+        for (int i = 0; i < size; i++) {
+            reader.readId(prefix);
+            long id = reader.readId(prefix);
+            long hits = reader.readVarint();
+            if (id >= 0) {
+                consumer.accept(id, hits);
+            }
+        }
+    }
+
+    private static List<StatisticInDto> readHits(Reader reader, boolean weighted) throws IOException {
+        int size = reader.readSize();
+        List<StatisticInDto> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String app = reader.readString();
+            String uri = reader.readString();
+            String ip = reader.readString();
+            long millis = reader.readVarint();
+            Integer count = null;
+            if (weighted) {
+                long value = reader.readVarint();
+                count = value == 0 ? null : (int) unzigzag(value - 1);
+            }
+            hits.add(new StatisticInDto(app, uri, ip, millis == 0 ? null : fromMillis(unzigzag(millis - 1)), count));
+        }
+        return hits;
+    }
+
+    private static List<StatisticViewDto> readViews(Reader reader) throws IOException {
+        int size = reader.readSize();
+        List<StatisticViewDto> views = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            views.add(new StatisticViewDto(reader.readString(), reader.readString(), reader.readVarint()));
+        }
+        return views;
+    }
+
+    private static StatisticBatchResultDto readBatchResult(Reader reader) throws IOException {
+        int accepted = reader.readSize();
+        int size = reader.readSize();
+        List<StatisticRejectionDto> rejected = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rejected.add(new StatisticRejectionDto(reader.readSize(), reader.readString()));
+        }
+        return new StatisticBatchResultDto(accepted, rejected);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static class Writer {
+        private final OutputStream out;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.write((int) value);
+        }
+
+        /**
+         * 0 - null, 1 - новая строка (далее длина и байты), n + 2 - ссылка на n-ю строку сообщения.
+         */
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarint(index + 2);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(1);
+            writeVarint(bytes.length);
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        private void flush() throws IOException {
+            buffer.writeTo(out);
+            out.flush();
+        }
+    }
+
+    private static class Reader {
+        private final InputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private long[] ids = new long[64];
+        private int idCount;
+        private byte[] scratch = new byte[64];
+
+        private Reader(InputStream in) {
+            this.in = in;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Бинарное сообщение статистики оборвано");
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Некорректное число в бинарном сообщении статистики");
+        }
+
+        private int readSize() throws IOException {
+            long value = readVarint();
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Некорректный размер в бинарном сообщении статистики");
+            }
+            return (int) value;
+        }
+
+        private String readString() throws IOException {
+            int tag = readSize();
+            if (tag == 0) {
+                return null;
+            }
+            if (tag > 1) {
+                if (tag - 2 >= strings.size()) {
+                    throw new IOException("Некорректная ссылка на строку в бинарном сообщении статистики");
+                }
+                return strings.get(tag - 2);
+            }
+            int length = readSize();
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException("Бинарное сообщение статистики оборвано");
+            }
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        /**
+         * Вариант readString для потока id: таблица повторов хранит не строки, а извлечённые из них id
+         * (-1, если строка не начинается с prefix или не заканчивается числом).
+         */
+        private long readId(byte[] prefix) throws IOException {
+            int tag = readSize();
+            if (tag == 0) {
+                return -1;
+            }
+            if (tag > 1) {
+                if (tag - 2 >= idCount) {
+                    throw new IOException("Некорректная ссылка на строку в бинарном сообщении статистики");
+                }
+                return ids[tag - 2];
+            }
+            int length = readSize();
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            if (in.readNBytes(scratch, 0, length) < length) {
+                throw new EOFException("Бинарное сообщение статистики оборвано");
+            }
+            long id = parseId(scratch, length, prefix);
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+            return id;
+        }
+
+        private static long parseId(byte[] bytes, int length, byte[] prefix) {
+            if (length <= prefix.length || length - prefix.length > 18) {
+                return -1;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (bytes[i] != prefix[i]) {
+                    return -1;
+                }
+            }
+            long id = 0;
+            for (int i = prefix.length; i < length; i++) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                id = id * 10 + digit;
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.practicum.explorewithme;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Конвертер для {@link StatisticBinaryCodec#MEDIA_TYPE}: принимает и отдаёт одиночный хит, список хитов,
+ * список записей статистики и результат пакетной загрузки.
+ */
+public class StatisticBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(StatisticBinaryCodec.MEDIA_TYPE);
+
+    public StatisticBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type == Object.class || isSupported(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isSupported(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(type instanceof Class ? (Class<?>) type : List.class, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        Object message = StatisticBinaryCodec.read(inputMessage.getBody());
+        if (clazz == StatisticInDto.class) {
+            List<?> hits = (List<?>) message;
+            if (hits.size() != 1) {
+                throw new HttpMessageNotReadableException("Ожидался один хит, получено: " + hits.size(),
+                        inputMessage);
+            }
+            return hits.get(0);
+        }
+        return message;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (value instanceof StatisticInDto) {
+            StatisticBinaryCodec.writeHits(List.of((StatisticInDto) value), outputMessage.getBody());
+        } else if (value instanceof StatisticBatchResultDto) {
+            StatisticBinaryCodec.writeBatchResult((StatisticBatchResultDto) value, outputMessage.getBody());
+        } else if (value instanceof List && elementType(value, type) == StatisticViewDto.class) {
+            StatisticBinaryCodec.writeViews((List<StatisticViewDto>) value, outputMessage.getBody());
+        } else if (value instanceof List) {
+            StatisticBinaryCodec.writeHits((List<StatisticInDto>) value, outputMessage.getBody());
+        } else {
+            throw new HttpMessageNotWritableException("Тип не поддерживается бинарным форматом: " + type);
+        }
+    }
+
+    /**
+     * Список принимается только с известным типом элементов: RestTemplate передаёт его из
+     * {@link org.springframework.http.RequestEntity} с типом тела, контроллер - из объявленного типа результата.
+     */
+    private static boolean isSupported(Type type) {
+        if (type == StatisticInDto.class || type == StatisticBatchResultDto.class) {
+            return true;
+        }
+        Type element = elementType(type);
+        return element == StatisticInDto.class || element == StatisticViewDto.class;
+    }
+
+    private static Type elementType(Object value, Type type) {
+        Type element = elementType(type);
+        if (element == null && !((List<?>) value).isEmpty()) {
+            return ((List<?>) value).get(0).getClass();
+        }
+        return element;
+    }
+
+    private static Type elementType(Type type) {
+        ResolvableType list = ResolvableType.forType(type).as(List.class);
+        return list == ResolvableType.NONE ? null : list.resolveGeneric(0);
+    }
+}
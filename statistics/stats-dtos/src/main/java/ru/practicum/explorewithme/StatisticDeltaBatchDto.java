@@ -0,0 +1,18 @@
+package ru.practicum.explorewithme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Одна строка потока подписки. Пустой список deltas - проверка, что соединение живо.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatisticDeltaBatchDto {
+
+    private List<StatisticDeltaDto> deltas;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.explorewithme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Прирост статистики по uri с прошлой отправки подписчику: hits - всех просмотров, unique - посетителей,
+ * которые впервые открыли uri начиная с since подписки.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatisticDeltaDto {
+
+    private String uri;
+    private long hits;
+    private long unique;
+}
@@ -1,12 +1,15 @@
 package ru.practicum.explorewithme;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 import java.time.LocalDateTime;
 
 @Data
@@ -14,6 +17,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class StatisticInDto {
 
+    /**
+     * Верхняя граница count: столько одинаковых просмотров в секунду клиент успевает накопить за одно окно
+     * отправки только при явном злоупотреблении.
+     */
+    public static final int MAX_COUNT = 10_000;
+
     @NotEmpty(message = "Название приложения не может быть пустым")
     private String app;
     @NotEmpty(message = "URI не может быть путсым")
@@ -23,4 +32,20 @@ public class StatisticInDto {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     @NotNull(message = "Необходимо указать время отправления запроса")
     private LocalDateTime timestamp;
+    /**
+     * Число одинаковых просмотров (app, uri, ip) в пределах секунды timestamp, которые клиент объединил в одну
+     * запись. Отсутствие значения означает один просмотр.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Positive(message = "Число просмотров должно быть положительным")
+    @Max(value = MAX_COUNT, message = "Число просмотров в одной записи не может быть больше " + MAX_COUNT)
+    private Integer count;
+
+    public StatisticInDto(String app, String uri, String ip, LocalDateTime timestamp) {
+        this(app, uri, ip, timestamp, null);
+    }
+
+    public int weight() {
+        return count == null ? 1 : count;
+    }
 }
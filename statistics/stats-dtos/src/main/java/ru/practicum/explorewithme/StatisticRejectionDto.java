@@ -0,0 +1,14 @@
+package ru.practicum.explorewithme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatisticRejectionDto {
+
+    private int index;
+    private String reason;
+}
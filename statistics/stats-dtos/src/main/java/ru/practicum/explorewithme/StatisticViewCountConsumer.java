@@ -0,0 +1,7 @@
+package ru.practicum.explorewithme;
+
+@FunctionalInterface
+public interface StatisticViewCountConsumer {
+
+    void accept(long id, long hits);
+}
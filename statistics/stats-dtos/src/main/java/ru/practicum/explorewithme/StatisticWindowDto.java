@@ -0,0 +1,21 @@
+package ru.practicum.explorewithme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * Окно подсчёта для одного uri: просмотры учитываются начиная со start.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatisticWindowDto {
+
+    @NotEmpty(message = "URI не может быть пустым")
+    private String uri;
+    @NotEmpty(message = "Необходимо указать начало периода")
+    private String start;
+}
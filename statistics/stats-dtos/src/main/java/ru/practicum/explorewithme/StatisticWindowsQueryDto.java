@@ -0,0 +1,25 @@
+package ru.practicum.explorewithme;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Запрос статистики, в котором у каждого uri своё начало периода, а конец общий.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatisticWindowsQueryDto {
+
+    @NotEmpty(message = "Необходимо указать конец периода")
+    private String end;
+    private boolean unique;
+    @NotNull(message = "Необходимо указать список uri")
+    private List<@Valid StatisticWindowDto> windows;
+}
@@ -0,0 +1,93 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatisticBinaryCodecTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2022, 10, 1, 12, 30, 15);
+
+    @Test
+    void hitsRoundTrip() throws IOException {
+        List<StatisticInDto> hits = List.of(
+                new StatisticInDto("ewm", "/events/1", "10.0.0.1", TIME),
+                new StatisticInDto("ewm", "/events/1", "10.0.0.2", TIME.minusYears(60)),
+                new StatisticInDto("ewm", "/события/2", null, null));
+
+        assertEquals(hits, StatisticBinaryCodec.read(new ByteArrayInputStream(write(hits))));
+    }
+
+    @Test
+    void weightedHitsRoundTrip() throws IOException {
+        List<StatisticInDto> hits = List.of(
+                new StatisticInDto("ewm", "/events/1", "10.0.0.1", TIME, 5),
+                new StatisticInDto("ewm", "/events/2", "10.0.0.1", TIME));
+
+        assertEquals(hits, StatisticBinaryCodec.read(new ByteArrayInputStream(write(hits))));
+    }
+
+    @Test
+    void viewsRoundTrip() throws IOException {
+        List<StatisticViewDto> views = List.of(
+                new StatisticViewDto("ewm", "/events/1", 0),
+                new StatisticViewDto("ewm", "/events/2", Long.MAX_VALUE));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatisticBinaryCodec.writeViews(views, out);
+
+        assertEquals(views, StatisticBinaryCodec.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void batchResultRoundTrip() throws IOException {
+        StatisticBatchResultDto result = new StatisticBatchResultDto(2,
+                List.of(new StatisticRejectionDto(1, "Вне срока хранения"), new StatisticRejectionDto(3, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatisticBinaryCodec.writeBatchResult(result, out);
+
+        assertEquals(result, StatisticBinaryCodec.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void readViewCountsSkipsForeignAndNullUris() throws IOException {
+        List<StatisticViewDto> views = Arrays.asList(
+                new StatisticViewDto("ewm", "/events/7", 3),
+                new StatisticViewDto("ewm", "/compilations/7", 4),
+                new StatisticViewDto("ewm", null, 5),
+                new StatisticViewDto("ewm", "/events/x", 6),
+                new StatisticViewDto("ewm", "/events/7", 3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatisticBinaryCodec.writeViews(views, out);
+        Map<Long, Long> counts = new HashMap<>();
+
+        StatisticBinaryCodec.readViewCounts(new ByteArrayInputStream(out.toByteArray()), "/events/",
+                (id, hits) -> counts.merge(id, hits, Long::sum));
+
+        assertEquals(Map.of(7L, 6L), counts);
+    }
+
+    @Test
+    void truncatedMessageFails() throws IOException {
+        byte[] bytes = write(List.of(new StatisticInDto("ewm", "/events/1", "10.0.0.1", TIME)));
+
+        assertThrows(EOFException.class, () -> StatisticBinaryCodec.read(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+    }
+
+    private static byte[] write(List<StatisticInDto> hits) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatisticBinaryCodec.writeHits(hits, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatisticBinaryHttpMessageConverterTest {
+
+    private final StatisticBinaryHttpMessageConverter converter = new StatisticBinaryHttpMessageConverter();
+
+    @Test
+    void writesTypedLists() {
+        assertTrue(converter.canWrite(new ParameterizedTypeReference<List<StatisticInDto>>() {
+        }.getType(), List.class, StatisticBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertTrue(converter.canWrite(new ParameterizedTypeReference<List<StatisticViewDto>>() {
+        }.getType(), List.class, StatisticBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertTrue(converter.canWrite(StatisticBatchResultDto.class, StatisticBatchResultDto.class,
+                StatisticBinaryHttpMessageConverter.MEDIA_TYPE));
+    }
+
+    @Test
+    void rejectsRawAndForeignLists() {
+        assertFalse(converter.canWrite(ArrayList.class, ArrayList.class,
+                StatisticBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() {
+        }.getType(), List.class, StatisticBinaryHttpMessageConverter.MEDIA_TYPE));
+        assertFalse(converter.canWrite(String.class, String.class, StatisticBinaryHttpMessageConverter.MEDIA_TYPE));
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.explorewithme.stats.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.explorewithme.StatisticBinaryHttpMessageConverter;
+
+@Configuration
+public class StatisticWebConfig {
+
+    @Bean
+    public StatisticBinaryHttpMessageConverter statisticBinaryHttpMessageConverter() {
+        return new StatisticBinaryHttpMessageConverter();
+    }
+}
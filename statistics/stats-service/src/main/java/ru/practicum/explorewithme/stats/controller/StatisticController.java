@@ -1,15 +1,27 @@
 package ru.practicum.explorewithme.stats.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import ru.practicum.explorewithme.StatisticBatchResultDto;
 import ru.practicum.explorewithme.StatisticInDto;
 import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.StatisticWindowsQueryDto;
 import ru.practicum.explorewithme.stats.service.StatisticService;
+import ru.practicum.explorewithme.stats.service.StatisticSubscriptionService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Validated
@@ -17,7 +29,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StatisticController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final StatisticService statisticService;
+    private final StatisticSubscriptionService subscriptionService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping(value = "/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -25,6 +41,12 @@ public class StatisticController {
         statisticService.postHit(inDto);
     }
 
+    @PostMapping(value = "/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public StatisticBatchResultDto postHits(@RequestBody List<StatisticInDto> inDtos) {
+        return statisticService.postHits(inDtos);
+    }
+
     @GetMapping("/stats")
     public List<StatisticViewDto> getStatistics(@NotEmpty @RequestParam String start,
                                                 @NotEmpty @RequestParam String end,
@@ -33,4 +55,37 @@ public class StatisticController {
         Boolean uniqueParam = Boolean.valueOf(unique);
         return statisticService.getStatistic(start, end, uris, uniqueParam);
     }
+
+    @PostMapping("/stats/windows")
+    public List<StatisticViewDto> getWindowedStatistics(@Valid @RequestBody StatisticWindowsQueryDto query) {
+        return statisticService.getWindowedStatistic(query);
+    }
+
+    @GetMapping(value = "/stats", produces = NDJSON)
+    public void streamStatistics(@NotEmpty @RequestParam String start,
+                                 @NotEmpty @RequestParam String end,
+                                 @RequestParam(required = false) List<String> uris,
+                                 @RequestParam(value = "unique", defaultValue = "false") String unique,
+                                 HttpServletResponse response) throws IOException {
+        Boolean uniqueParam = Boolean.valueOf(unique);
+        response.setContentType(NDJSON);
+        OutputStream out = new BufferedOutputStream(response.getOutputStream());
+        statisticService.streamStatistic(start, end, uris, uniqueParam, dto -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    @GetMapping(value = "/stats/subscribe", produces = NDJSON)
+    public ResponseEntity<ResponseBodyEmitter> subscribe(@NotEmpty @RequestParam String uriPrefix,
+                                                         @NotEmpty @RequestParam String since) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(subscriptionService.subscribe(uriPrefix, since));
+    }
 }
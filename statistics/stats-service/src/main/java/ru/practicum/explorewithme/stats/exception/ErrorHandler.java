@@ -1,8 +1,8 @@
 package ru.practicum.explorewithme.stats.exception;
 
-import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.Map;
@@ -11,8 +11,10 @@ import java.util.Map;
 public class ErrorHandler {
 
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public Map<String, String> handleStatisticValidationException(StatisticValidationException e) {
-        return Map.of("Validation for statistic failed", e.getMessage());
+    public ResponseEntity<Map<String, String>> handleStatisticValidationException(StatisticValidationException e) {
+        // Тип задан явно, чтобы ошибка отдавалась в JSON и для потоковых запросов с Accept: application/x-ndjson
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("Validation for statistic failed", e.getMessage()));
     }
 }
@@ -0,0 +1,28 @@
+package ru.practicum.explorewithme.stats.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public enum PartitionInterval {
+
+    DAY(DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final DateTimeFormatter suffixFormat;
+
+    PartitionInterval(DateTimeFormatter suffixFormat) {
+        this.suffixFormat = suffixFormat;
+    }
+
+    public LocalDate floor(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    public LocalDate next(LocalDate start) {
+        return this == MONTH ? start.plusMonths(1) : start.plusDays(1);
+    }
+
+    public String suffix(LocalDate start) {
+        return start.format(suffixFormat);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.explorewithme.stats.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+
+    MINUTE("statistics_minute", ChronoUnit.MINUTES),
+    HOUR("statistics_hour", ChronoUnit.HOURS),
+    DAY("statistics_day", ChronoUnit.DAYS);
+
+    private final String table;
+    private final ChronoUnit unit;
+
+    RollupGranularity(String table, ChronoUnit unit) {
+        this.table = table;
+        this.unit = unit;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    public RollupGranularity finer() {
+        switch (this) {
+            case DAY:
+                return HOUR;
+            case HOUR:
+                return MINUTE;
+            default:
+                return null;
+        }
+    }
+}
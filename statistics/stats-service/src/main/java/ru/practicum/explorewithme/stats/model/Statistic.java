@@ -24,4 +24,6 @@ public class Statistic {
     private String ip;
     @Column(name = "timestamp_hit")
     private LocalDateTime timestamp;
+    @Builder.Default
+    private int hits = 1;
 }
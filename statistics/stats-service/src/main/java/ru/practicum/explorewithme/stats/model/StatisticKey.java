@@ -0,0 +1,10 @@
+package ru.practicum.explorewithme.stats.model;
+
+import lombok.Value;
+
+@Value
+public class StatisticKey {
+
+    String app;
+    String uri;
+}
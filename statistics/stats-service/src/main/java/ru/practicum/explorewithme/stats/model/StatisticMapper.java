@@ -10,6 +10,7 @@ public class StatisticMapper {
                 .uri(inDto.getUri())
                 .ip(inDto.getIp())
                 .timestamp(inDto.getTimestamp())
+                .hits(inDto.weight())
                 .build();
     }
 }
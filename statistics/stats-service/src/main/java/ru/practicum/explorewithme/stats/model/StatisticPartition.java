@@ -0,0 +1,13 @@
+package ru.practicum.explorewithme.stats.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class StatisticPartition {
+
+    String name;
+    LocalDateTime from;
+    LocalDateTime to;
+}
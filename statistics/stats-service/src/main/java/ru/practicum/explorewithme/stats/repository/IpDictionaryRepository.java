@@ -0,0 +1,94 @@
+package ru.practicum.explorewithme.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+public class IpDictionaryRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> cache = new ConcurrentHashMap<>();
+    private final int cacheSize;
+
+    public IpDictionaryRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                  @Value("${stats.ip-dictionary.cache-size:100000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheSize = cacheSize;
+    }
+
+    public Map<String, Integer> encode(Collection<String> ips) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String ip : ips) {
+            Integer id = cache.get(ip);
+            if (id != null) {
+                ids.put(ip, id);
+            } else if (!ids.containsKey(ip)) {
+                ids.put(ip, null);
+                missing.add(ip);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        Map<String, Integer> found = find(missing);
+        List<String> unknown = new ArrayList<>();
+        for (String ip : missing) {
+            if (!found.containsKey(ip)) {
+                unknown.add(ip);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO ip_dictionary (ip) VALUES (:ip) ON CONFLICT DO NOTHING",
+                    unknown.stream()
+                            .map(ip -> new MapSqlParameterSource("ip", ip))
+                            .toArray(MapSqlParameterSource[]::new));
+            found.putAll(find(unknown));
+        }
+        ids.putAll(found);
+        remember(found);
+        return ids;
+    }
+
+    private Map<String, Integer> find(List<String> ips) {
+        Map<String, Integer> found = new HashMap<>();
+        jdbcTemplate.query("SELECT id, ip FROM ip_dictionary WHERE ip IN (:ips)",
+                new MapSqlParameterSource("ips", ips),
+                rs -> {
+                    found.put(rs.getString("ip"), rs.getInt("id"));
+                });
+        return found;
+    }
+
+    private void remember(Map<String, Integer> found) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cacheAll(found);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheAll(found);
+            }
+        });
+    }
+
+    private void cacheAll(Map<String, Integer> found) {
+        if (cache.size() + found.size() > cacheSize) {
+            cache.clear();
+        }
+        cache.putAll(found);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.explorewithme.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.stats.model.Statistic;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class StatisticBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO statistics (app, uri, ip, timestamp_hit, hits) VALUES (?, ?, ?, ?, ?)";
+    private static final String FIRST_VISITS_SQL = "SELECT uri, ip, MIN(timestamp_hit) AS first_visit " +
+            "FROM statistics WHERE uri = ANY(?) AND ip = ANY(?) AND timestamp_hit >= ? GROUP BY uri, ip";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public StatisticBatchRepository(JdbcTemplate jdbcTemplate,
+                                    @Value("${stats.hits.insert-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public void saveAll(List<Statistic> statistics) {
+        if (statistics.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, statistics, batchSize, (ps, statistic) -> {
+            ps.setString(1, statistic.getApp());
+            ps.setString(2, statistic.getUri());
+            ps.setString(3, statistic.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(statistic.getTimestamp()));
+            ps.setInt(5, statistic.getHits());
+        });
+    }
+
+    /**
+     * Списки uri и ip передаются двумя параметрами-массивами, поэтому их размер не упирается в предел числа
+     * параметров запроса.
+     */
+    public Map<String, Map<String, LocalDateTime>> findFirstVisits(Collection<String> uris, Collection<String> ips,
+                                                                   LocalDateTime from) {
+        Map<String, Map<String, LocalDateTime>> visits = new HashMap<>();
+        if (uris.isEmpty() || ips.isEmpty()) {
+            return visits;
+        }
+        jdbcTemplate.query(FIRST_VISITS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", uris.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", ips.toArray()));
+            ps.setTimestamp(3, Timestamp.valueOf(from));
+        }, rs -> {
+            visits.computeIfAbsent(rs.getString("uri"), uri -> new HashMap<>())
+                    .put(rs.getString("ip"), rs.getTimestamp("first_visit").toLocalDateTime());
+        });
+        return visits;
+    }
+}
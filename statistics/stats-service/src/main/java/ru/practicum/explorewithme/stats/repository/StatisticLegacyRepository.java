@@ -0,0 +1,45 @@
+package ru.practicum.explorewithme.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.stats.model.Statistic;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Таблица statistics_legacy - прежняя несекционированная statistics, которую schema.sql переименовывает
+ * перед созданием секционированной.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatisticLegacyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean exists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('statistics_legacy') IS NOT NULL", Boolean.class));
+    }
+
+    public List<Statistic> findAfter(long afterId, LocalDateTime from, int limit) {
+        return jdbcTemplate.query("SELECT id, app, uri, ip, timestamp_hit, hits FROM statistics_legacy " +
+                        "WHERE id > ? AND timestamp_hit >= ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new Statistic(rs.getLong("id"), rs.getString("app"), rs.getString("uri"),
+                        rs.getString("ip"), rs.getTimestamp("timestamp_hit").toLocalDateTime(), rs.getInt("hits")),
+                afterId, Timestamp.valueOf(from), limit);
+    }
+
+    /**
+     * Удаляет перенесённые записи, чтобы прерванный перенос продолжился с места остановки.
+     */
+    public void deleteUpTo(long lastId) {
+        jdbcTemplate.update("DELETE FROM statistics_legacy WHERE id <= ?", lastId);
+    }
+
+    public void drop() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS statistics_legacy");
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.explorewithme.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.stats.model.StatisticPartition;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+@RequiredArgsConstructor
+public class StatisticPartitionRepository {
+
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<StatisticPartition> findPartitions() {
+        List<StatisticPartition> partitions = new ArrayList<>();
+        jdbcTemplate.query("SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bounds " +
+                "FROM pg_inherits AS i " +
+                "JOIN pg_class AS c ON c.oid = i.inhrelid " +
+                "JOIN pg_class AS p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'statistics'", rs -> {
+                    Matcher matcher = BOUNDS.matcher(rs.getString("bounds"));
+                    if (matcher.find()) {
+                        partitions.add(new StatisticPartition(rs.getString("name"),
+                                LocalDateTime.parse(matcher.group(1), BOUND_FORMAT),
+                                LocalDateTime.parse(matcher.group(2), BOUND_FORMAT)));
+                    }
+                });
+        return partitions;
+    }
+
+    public void createPartition(StatisticPartition partition) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition.getName() + " PARTITION OF statistics " +
+                "FOR VALUES FROM ('" + partition.getFrom().format(BOUND_FORMAT) + "') " +
+                "TO ('" + partition.getTo().format(BOUND_FORMAT) + "')");
+    }
+
+    public void dropPartition(StatisticPartition partition) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.getName());
+    }
+}
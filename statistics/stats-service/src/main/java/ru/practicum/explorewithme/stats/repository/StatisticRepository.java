@@ -12,11 +12,11 @@ import java.util.List;
 @Repository
 public interface StatisticRepository extends JpaRepository<Statistic, Long> {
 
-    @Query("SELECT new ru.practicum.explorewithme.StatisticViewDto(s.app, s.uri, COUNT (s.ip))" +
+    @Query("SELECT new ru.practicum.explorewithme.StatisticViewDto(s.app, s.uri, SUM (s.hits))" +
             "FROM Statistic AS s " +
             "WHERE s.timestamp BETWEEN ?1 AND ?2 " +
             "GROUP BY s.app, s.uri " +
-            "ORDER BY COUNT (s.ip) DESC")
+            "ORDER BY SUM (s.hits) DESC")
     List<StatisticViewDto> findAllStatisticsByTime(LocalDateTime start, LocalDateTime end);
 
     @Query("SELECT new ru.practicum.explorewithme.StatisticViewDto(s.app, s.uri, COUNT (DISTINCT s.ip))" +
@@ -34,11 +34,11 @@ public interface StatisticRepository extends JpaRepository<Statistic, Long> {
     List<StatisticViewDto> findAllStatisticsByTimeAndListOfUrisAndUniqueIp(
             LocalDateTime start, LocalDateTime end, List<String> uris);
 
-    @Query("SELECT new ru.practicum.explorewithme.StatisticViewDto(s.app, s.uri, COUNT (s.ip))" +
+    @Query("SELECT new ru.practicum.explorewithme.StatisticViewDto(s.app, s.uri, SUM (s.hits))" +
             "FROM Statistic AS s " +
             "WHERE s.timestamp BETWEEN ?1 AND ?2 AND s.uri IN ?3 " +
             "GROUP BY s.app, s.uri " +
-            "ORDER BY COUNT (s.ip) DESC")
+            "ORDER BY SUM (s.hits) DESC")
     List<StatisticViewDto> findAllStatisticsByTimeAndListOfUris(LocalDateTime start, LocalDateTime end,
                                                                 List<String> uris);
 }
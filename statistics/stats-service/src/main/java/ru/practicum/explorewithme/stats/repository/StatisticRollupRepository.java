@@ -0,0 +1,247 @@
+package ru.practicum.explorewithme.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+import ru.practicum.explorewithme.stats.model.Statistic;
+import ru.practicum.explorewithme.stats.model.StatisticKey;
+import ru.practicum.explorewithme.stats.model.VisitorBitmaps;
+import ru.practicum.explorewithme.stats.storage.StatisticUriRange;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class StatisticRollupRepository {
+
+    private static final int LOCK_CHUNK = 1000;
+    private static final int RANGE_CHUNK = 1000;
+    private static final Comparator<Bucket> BUCKET_ORDER = Comparator.comparing(Bucket::getUri)
+            .thenComparing(Bucket::getStart)
+            .thenComparing(Bucket::getApp);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void apply(Collection<Statistic> statistics, Map<String, Integer> ipIds) {
+        if (statistics.isEmpty()) {
+            return;
+        }
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Map<Bucket, Delta> deltas = new TreeMap<>(BUCKET_ORDER);
+            for (Statistic statistic : statistics) {
+                Bucket bucket = new Bucket(statistic.getUri(), granularity.floor(statistic.getTimestamp()),
+                        statistic.getApp());
+                Delta delta = deltas.computeIfAbsent(bucket, b -> new Delta());
+                delta.hits += statistic.getHits();
+                delta.visitors.add(ipIds.get(statistic.getIp()));
+            }
+            applyDeltas(granularity, deltas);
+        }
+    }
+
+    /**
+     * Удаляет агрегаты корзин, начавшихся раньше border. Возвращает число удалённых строк.
+     */
+    public int deleteBefore(RollupGranularity granularity, LocalDateTime border) {
+        return jdbcTemplate.update("DELETE FROM " + granularity.getTable() + " WHERE bucket_start < :border",
+                new MapSqlParameterSource("border", Timestamp.valueOf(border)));
+    }
+
+    public void sumHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris,
+                        Map<StatisticKey, Long> hits) {
+        MapSqlParameterSource params = rangeParams(from, to, uris);
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM " + granularity.getTable() +
+                " WHERE bucket_start >= :from AND bucket_start < :to" + uriFilter(uris) +
+                " GROUP BY app, uri";
+        jdbcTemplate.query(sql, params, rs -> {
+            hits.merge(new StatisticKey(rs.getString("app"), rs.getString("uri")), rs.getLong("hits"), Long::sum);
+        });
+    }
+
+    public void mergeVisitors(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris,
+                              Map<StatisticKey, RoaringBitmap> visitors) {
+        MapSqlParameterSource params = rangeParams(from, to, uris);
+        String sql = "SELECT app, uri, visitors FROM " + granularity.getTable() +
+                " WHERE bucket_start >= :from AND bucket_start < :to" + uriFilter(uris);
+        jdbcTemplate.query(sql, params, rs -> {
+            visitors.computeIfAbsent(new StatisticKey(rs.getString("app"), rs.getString("uri")),
+                    k -> new RoaringBitmap()).or(VisitorBitmaps.fromBytes(rs.getBytes("visitors")));
+        });
+    }
+
+    public void sumRawHits(LocalDateTime from, LocalDateTime to, List<String> uris, Map<StatisticKey, Long> hits) {
+        MapSqlParameterSource params = rangeParams(from, to, uris);
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM statistics " +
+                "WHERE timestamp_hit >= :from AND timestamp_hit < :to" + uriFilter(uris) +
+                " GROUP BY app, uri";
+        jdbcTemplate.query(sql, params, rs -> {
+            hits.merge(new StatisticKey(rs.getString("app"), rs.getString("uri")), rs.getLong("hits"), Long::sum);
+        });
+    }
+
+    public void mergeRawVisitors(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                 Map<StatisticKey, RoaringBitmap> visitors) {
+        MapSqlParameterSource params = rangeParams(from, to, uris);
+        String sql = "SELECT DISTINCT s.app, s.uri, d.id FROM statistics AS s " +
+                "JOIN ip_dictionary AS d ON d.ip = s.ip " +
+                "WHERE s.timestamp_hit >= :from AND s.timestamp_hit < :to" +
+                (uris != null ? " AND s.uri IN (:uris)" : "");
+        jdbcTemplate.query(sql, params, rs -> {
+            visitors.computeIfAbsent(new StatisticKey(rs.getString("app"), rs.getString("uri")),
+                    k -> new RoaringBitmap()).add(rs.getInt("id"));
+        });
+    }
+
+    /**
+     * Варианты запросов выше для случая, когда у каждого uri свой период. Периоды передаются списком VALUES и
+     * соединяются с таблицей, поэтому на все uri уходит один запрос на каждые RANGE_CHUNK периодов.
+     */
+    public void sumHits(RollupGranularity granularity, List<StatisticUriRange> ranges, Map<StatisticKey, Long> hits) {
+        String sql = "SELECT t.app, t.uri, SUM(t.hits) AS hits FROM " + granularity.getTable() + " AS t " +
+                rangeJoin("t", "bucket_start") +
+                " GROUP BY t.app, t.uri";
+        queryRanges(sql, ranges, rs -> {
+            hits.merge(new StatisticKey(rs.getString("app"), rs.getString("uri")), rs.getLong("hits"), Long::sum);
+        });
+    }
+
+    public void mergeVisitors(RollupGranularity granularity, List<StatisticUriRange> ranges,
+                              Map<StatisticKey, RoaringBitmap> visitors) {
+        String sql = "SELECT t.app, t.uri, t.visitors FROM " + granularity.getTable() + " AS t " +
+                rangeJoin("t", "bucket_start");
+        queryRanges(sql, ranges, rs -> {
+            visitors.computeIfAbsent(new StatisticKey(rs.getString("app"), rs.getString("uri")),
+                    k -> new RoaringBitmap()).or(VisitorBitmaps.fromBytes(rs.getBytes("visitors")));
+        });
+    }
+
+    public void sumRawHits(List<StatisticUriRange> ranges, Map<StatisticKey, Long> hits) {
+        String sql = "SELECT s.app, s.uri, SUM(s.hits) AS hits FROM statistics AS s " +
+                rangeJoin("s", "timestamp_hit") +
+                " WHERE s.timestamp_hit >= :from AND s.timestamp_hit < :to" +
+                " GROUP BY s.app, s.uri";
+        queryRanges(sql, ranges, rs -> {
+            hits.merge(new StatisticKey(rs.getString("app"), rs.getString("uri")), rs.getLong("hits"), Long::sum);
+        });
+    }
+
+    public void mergeRawVisitors(List<StatisticUriRange> ranges, Map<StatisticKey, RoaringBitmap> visitors) {
+        String sql = "SELECT DISTINCT s.app, s.uri, d.id FROM statistics AS s " +
+                rangeJoin("s", "timestamp_hit") +
+                " JOIN ip_dictionary AS d ON d.ip = s.ip" +
+                " WHERE s.timestamp_hit >= :from AND s.timestamp_hit < :to";
+        queryRanges(sql, ranges, rs -> {
+            visitors.computeIfAbsent(new StatisticKey(rs.getString("app"), rs.getString("uri")),
+                    k -> new RoaringBitmap()).add(rs.getInt("id"));
+        });
+    }
+
+    private void applyDeltas(RollupGranularity granularity, Map<Bucket, Delta> deltas) {
+        String table = granularity.getTable();
+        List<Bucket> buckets = new ArrayList<>(deltas.keySet());
+
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (uri, bucket_start, app, hits, visitors) " +
+                        "VALUES (:uri, :start, :app, 0, :visitors) ON CONFLICT DO NOTHING",
+                buckets.stream()
+                        .map(bucket -> bucketParams(bucket)
+                                .addValue("visitors", VisitorBitmaps.toBytes(new RoaringBitmap())))
+                        .toArray(MapSqlParameterSource[]::new));
+
+        for (int from = 0; from < buckets.size(); from += LOCK_CHUNK) {
+            List<Object[]> keys = new ArrayList<>();
+            for (Bucket bucket : buckets.subList(from, Math.min(from + LOCK_CHUNK, buckets.size()))) {
+                keys.add(new Object[]{bucket.getUri(), Timestamp.valueOf(bucket.getStart()), bucket.getApp()});
+            }
+            jdbcTemplate.query("SELECT uri, bucket_start, app, visitors FROM " + table +
+                            " WHERE (uri, bucket_start, app) IN (:keys) " +
+                            "ORDER BY uri, bucket_start, app FOR UPDATE",
+                    new MapSqlParameterSource("keys", keys), rs -> {
+                        Bucket bucket = new Bucket(rs.getString("uri"),
+                                rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getString("app"));
+                        Delta delta = deltas.get(bucket);
+                        if (delta != null) {
+                            delta.visitors.or(VisitorBitmaps.fromBytes(rs.getBytes("visitors")));
+                        }
+                    });
+        }
+
+        jdbcTemplate.batchUpdate("UPDATE " + table + " SET hits = hits + :hits, visitors = :visitors " +
+                        "WHERE uri = :uri AND bucket_start = :start AND app = :app",
+                buckets.stream()
+                        .map(bucket -> bucketParams(bucket)
+                                .addValue("hits", deltas.get(bucket).hits)
+                                .addValue("visitors", VisitorBitmaps.toBytes(deltas.get(bucket).visitors)))
+                        .toArray(MapSqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource bucketParams(Bucket bucket) {
+        return new MapSqlParameterSource()
+                .addValue("uri", bucket.getUri())
+                .addValue("start", Timestamp.valueOf(bucket.getStart()))
+                .addValue("app", bucket.getApp());
+    }
+
+    private MapSqlParameterSource rangeParams(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (uris != null) {
+            params.addValue("uris", uris);
+        }
+        return params;
+    }
+
+    /**
+     * Общие границы :from и :to дублируют условия соединения, чтобы по сырой таблице отсекались лишние секции.
+     */
+    private void queryRanges(String sql, List<StatisticUriRange> ranges, RowCallbackHandler handler) {
+        for (int from = 0; from < ranges.size(); from += RANGE_CHUNK) {
+            List<StatisticUriRange> chunk = ranges.subList(from, Math.min(from + RANGE_CHUNK, ranges.size()));
+            List<Object[]> values = new ArrayList<>(chunk.size());
+            LocalDateTime min = chunk.get(0).getFrom();
+            LocalDateTime max = chunk.get(0).getTo();
+            for (StatisticUriRange range : chunk) {
+                values.add(new Object[]{range.getUri(), Timestamp.valueOf(range.getFrom()),
+                        Timestamp.valueOf(range.getTo())});
+                min = range.getFrom().isBefore(min) ? range.getFrom() : min;
+                max = range.getTo().isAfter(max) ? range.getTo() : max;
+            }
+            jdbcTemplate.query(sql, rangeParams(min, max, null).addValue("ranges", values), handler);
+        }
+    }
+
+    private String rangeJoin(String alias, String timeColumn) {
+        String time = alias + "." + timeColumn;
+        return "JOIN (VALUES :ranges) AS q (uri, range_from, range_to) ON " + alias + ".uri = q.uri" +
+                " AND " + time + " >= CAST(q.range_from AS TIMESTAMP)" +
+                " AND " + time + " < CAST(q.range_to AS TIMESTAMP)";
+    }
+
+    private String uriFilter(List<String> uris) {
+        return uris != null ? " AND uri IN (:uris)" : "";
+    }
+
+    @Value
+    private static class Bucket {
+        String uri;
+        LocalDateTime start;
+        String app;
+    }
+
+    private static class Delta {
+        private long hits;
+        private final RoaringBitmap visitors = new RoaringBitmap();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.explorewithme.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.storage.StatisticQueryRange;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+@Repository
+public class StatisticStreamRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StatisticStreamRepository(DataSource dataSource,
+                                     @Value("${stats.stream.fetch-size:500}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * Суммирует попадания по промежуткам плана одним запросом.
+     * Строки читаются курсором, поэтому вызывать нужно внутри транзакции.
+     */
+    public void streamHits(List<StatisticQueryRange> queryRanges, List<String> uris,
+                           Consumer<StatisticViewDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringJoiner ranges = new StringJoiner(" UNION ALL ");
+
+        if (uris != null) {
+            params.addValue("uris", uris);
+        }
+        for (int i = 0; i < queryRanges.size(); i++) {
+            StatisticQueryRange range = queryRanges.get(i);
+            params.addValue("from" + i, Timestamp.valueOf(range.getFrom()));
+            params.addValue("to" + i, Timestamp.valueOf(range.getTo()));
+            if (range.isRaw()) {
+                ranges.add("SELECT app, uri, SUM(hits) AS hits FROM statistics " +
+                        "WHERE timestamp_hit >= :from" + i + " AND timestamp_hit < :to" + i + uriFilter(uris) +
+                        " GROUP BY app, uri");
+            } else {
+                ranges.add("SELECT app, uri, hits FROM " + range.getGranularity().getTable() +
+                        " WHERE bucket_start >= :from" + i + " AND bucket_start < :to" + i + uriFilter(uris));
+            }
+        }
+        jdbcTemplate.query("SELECT app, uri, SUM(hits) AS hits FROM (" + ranges + ") AS ranges " +
+                "GROUP BY app, uri ORDER BY hits DESC", params, rs -> {
+                    consumer.accept(new StatisticViewDto(rs.getString("app"), rs.getString("uri"),
+                            rs.getLong("hits")));
+                });
+    }
+
+    public void streamUniqueHits(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                 Consumer<StatisticViewDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (uris != null) {
+            params.addValue("uris", uris);
+        }
+        jdbcTemplate.query("SELECT app, uri, COUNT(DISTINCT ip) AS hits FROM statistics " +
+                "WHERE timestamp_hit >= :from AND timestamp_hit < :to" + uriFilter(uris) +
+                " GROUP BY app, uri ORDER BY hits DESC", params, rs -> {
+                    consumer.accept(new StatisticViewDto(rs.getString("app"), rs.getString("uri"),
+                            rs.getLong("hits")));
+                });
+    }
+
+    private String uriFilter(List<String> uris) {
+        return uris != null ? " AND uri IN (:uris)" : "";
+    }
+}
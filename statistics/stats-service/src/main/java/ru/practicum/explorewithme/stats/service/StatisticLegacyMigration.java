@@ -0,0 +1,88 @@
+package ru.practicum.explorewithme.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.stats.model.Statistic;
+import ru.practicum.explorewithme.stats.repository.IpDictionaryRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticBatchRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticLegacyRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRollupRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Переносит записи из несекционированной таблицы прежних версий. Записи в пределах периода хранения
+ * порциями переписываются в секционированную statistics вместе с агрегатами, недостающие секции
+ * создаются по требованию. Старше периода хранения записи не переносятся: их секции всё равно были бы удалены.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "jdbc", matchIfMissing = true)
+public class StatisticLegacyMigration {
+
+    private static final int CHUNK = 10_000;
+
+    private final StatisticLegacyRepository legacyRepository;
+    private final StatisticPartitionService partitionService;
+    private final StatisticBatchRepository batchRepository;
+    private final StatisticRollupRepository rollupRepository;
+    private final IpDictionaryRepository ipDictionaryRepository;
+    private final TransactionTemplate transaction;
+    private final int retentionDays;
+
+    public StatisticLegacyMigration(StatisticLegacyRepository legacyRepository,
+                                    StatisticPartitionService partitionService,
+                                    StatisticBatchRepository batchRepository,
+                                    StatisticRollupRepository rollupRepository,
+                                    IpDictionaryRepository ipDictionaryRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${stats.partitions.retention-days:365}") int retentionDays) {
+        this.legacyRepository = legacyRepository;
+        this.partitionService = partitionService;
+        this.batchRepository = batchRepository;
+        this.rollupRepository = rollupRepository;
+        this.ipDictionaryRepository = ipDictionaryRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!legacyRepository.exists()) {
+            return;
+        }
+        log.info("Найдена несекционированная таблица статистики, перенос записей");
+        LocalDateTime from = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        long lastId = 0;
+        long moved = 0;
+        while (true) {
+            List<Statistic> chunk = legacyRepository.findAfter(lastId, from, CHUNK);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<Statistic> accepted = chunk.stream()
+                    .filter(statistic -> partitionService.accepts(statistic.getTimestamp()))
+                    .collect(Collectors.toList());
+            long chunkLastId = chunk.get(chunk.size() - 1).getId();
+            transaction.executeWithoutResult(status -> {
+                batchRepository.saveAll(accepted);
+                rollupRepository.apply(accepted, ipDictionaryRepository.encode(accepted.stream()
+                        .map(Statistic::getIp)
+                        .collect(Collectors.toSet())));
+                legacyRepository.deleteUpTo(chunkLastId);
+            });
+            moved += accepted.size();
+            lastId = chunkLastId;
+        }
+        legacyRepository.drop();
+        log.info("Перенесено {} записей статистики, старая таблица удалена", moved);
+    }
+}
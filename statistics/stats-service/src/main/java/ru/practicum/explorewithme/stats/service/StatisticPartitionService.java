@@ -0,0 +1,162 @@
+package ru.practicum.explorewithme.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.stats.model.PartitionInterval;
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+import ru.practicum.explorewithme.stats.model.StatisticPartition;
+import ru.practicum.explorewithme.stats.repository.StatisticPartitionRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRollupRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "stats.storage", havingValue = "jdbc", matchIfMissing = true)
+public class StatisticPartitionService {
+
+    private final StatisticPartitionRepository partitionRepository;
+    private final StatisticRollupRepository rollupRepository;
+    private final PartitionInterval interval;
+    private final int ahead;
+    private final int retentionDays;
+    /**
+     * Секция по требованию создаётся в своей транзакции: запись, ради которой она понадобилась, идёт в
+     * транзакции сохранения, и её откат не должен убирать секцию, уже попавшую в coverage.
+     */
+    private final TransactionTemplate partitionTransaction;
+    private volatile NavigableMap<LocalDateTime, LocalDateTime> coverage = new TreeMap<>();
+
+    public StatisticPartitionService(StatisticPartitionRepository partitionRepository,
+                                     StatisticRollupRepository rollupRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${stats.partitions.interval:DAY}") PartitionInterval interval,
+                                     @Value("${stats.partitions.ahead:7}") int ahead,
+                                     @Value("${stats.partitions.retention-days:365}") int retentionDays) {
+        this.partitionRepository = partitionRepository;
+        this.rollupRepository = rollupRepository;
+        this.interval = interval;
+        this.ahead = ahead;
+        this.retentionDays = retentionDays;
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Создаёт секции наперёд и удаляет данные старше периода хранения: секции сырых записей и строки агрегатов
+     * вместе, иначе запрос по агрегатам продолжал бы находить просмотры, которых уже нет в сырых записях.
+     */
+    @PostConstruct
+    @Scheduled(cron = "${stats.partitions.cron:0 5 0 * * *}")
+    public synchronized void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+        List<StatisticPartition> partitions = partitionRepository.findPartitions();
+
+        LocalDate start = interval.floor(interval.floor(today).minusDays(1));
+        for (int i = 0; i <= ahead + 1; i++) {
+            LocalDate end = interval.next(start);
+            StatisticPartition partition = new StatisticPartition("statistics_p" + interval.suffix(start),
+                    start.atStartOfDay(), end.atStartOfDay());
+            if (partitions.stream().noneMatch(existing -> overlaps(existing, partition))) {
+                partitionRepository.createPartition(partition);
+                partitions.add(partition);
+                log.info("Создана секция статистики {}", partition.getName());
+            }
+            start = end;
+        }
+
+        LocalDateTime retentionBorder = retentionBorder();
+        for (StatisticPartition partition : List.copyOf(partitions)) {
+            if (!partition.getTo().isAfter(retentionBorder)) {
+                partitionRepository.dropPartition(partition);
+                partitions.remove(partition);
+                log.info("Удалена устаревшая секция статистики {}", partition.getName());
+            }
+        }
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            int deleted = rollupRepository.deleteBefore(granularity, retentionBorder);
+            if (deleted > 0) {
+                log.info("Удалено {} устаревших агрегатов из {}", deleted, granularity.getTable());
+            }
+        }
+
+        NavigableMap<LocalDateTime, LocalDateTime> updated = new TreeMap<>();
+        partitions.forEach(partition -> updated.put(partition.getFrom(), partition.getTo()));
+        coverage = updated;
+    }
+
+    /**
+     * Можно ли сохранить запись с этим временем. Отклоняются только записи старше периода хранения: для
+     * остальных недостающая секция создаётся на месте, так что принимаются и импорт истории, и записи,
+     * досланные после простоя.
+     */
+    public boolean accepts(LocalDateTime timestamp) {
+        if (covers(timestamp)) {
+            return true;
+        }
+        if (timestamp.isBefore(retentionBorder())) {
+            return false;
+        }
+        createPartitionFor(timestamp);
+        return true;
+    }
+
+    private boolean covers(LocalDateTime timestamp) {
+        Map.Entry<LocalDateTime, LocalDateTime> partition = coverage.floorEntry(timestamp);
+        return partition != null && partition.getValue().isAfter(timestamp);
+    }
+
+    /**
+     * Секция интервала, в который попадает timestamp. Если соседние секции нарезаны по другому интервалу
+     * (настройку поменяли), новая обрезается по их границам, чтобы диапазоны не пересекались.
+     */
+    private synchronized void createPartitionFor(LocalDateTime timestamp) {
+        if (covers(timestamp)) {
+            return;
+        }
+        LocalDate start = interval.floor(timestamp.toLocalDate());
+        LocalDateTime from = start.atStartOfDay();
+        LocalDateTime to = interval.next(start).atStartOfDay();
+        Map.Entry<LocalDateTime, LocalDateTime> previous = coverage.floorEntry(timestamp);
+        if (previous != null && previous.getValue().isAfter(from)) {
+            from = previous.getValue();
+        }
+        LocalDateTime next = coverage.higherKey(timestamp);
+        if (next != null && next.isBefore(to)) {
+            to = next;
+        }
+        String name = "statistics_p" + (from.equals(start.atStartOfDay())
+                ? interval.suffix(start)
+                : PartitionInterval.DAY.suffix(from.toLocalDate()));
+        StatisticPartition partition = new StatisticPartition(name, from, to);
+        partitionTransaction.executeWithoutResult(status -> partitionRepository.createPartition(partition));
+
+        NavigableMap<LocalDateTime, LocalDateTime> updated = new TreeMap<>(coverage);
+        updated.put(partition.getFrom(), partition.getTo());
+        coverage = updated;
+        log.info("Создана секция статистики {} для записи от {}", partition.getName(), timestamp);
+    }
+
+    /**
+     * Начало периода хранения: более ранние записи и агрегаты удаляются, и запросы их не учитывают.
+     */
+    public LocalDateTime retentionBorder() {
+        return LocalDate.now().minusDays(retentionDays).atStartOfDay();
+    }
+
+    private boolean overlaps(StatisticPartition first, StatisticPartition second) {
+        return first.getFrom().isBefore(second.getTo()) && second.getFrom().isBefore(first.getTo());
+    }
+}
@@ -1,13 +1,23 @@
 package ru.practicum.explorewithme.stats.service;
 
+import ru.practicum.explorewithme.StatisticBatchResultDto;
 import ru.practicum.explorewithme.StatisticInDto;
 import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.StatisticWindowsQueryDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatisticService {
 
     void postHit(StatisticInDto inDto);
 
+    StatisticBatchResultDto postHits(List<StatisticInDto> inDtos);
+
     List<StatisticViewDto> getStatistic(String start, String end, List<String> uris, Boolean unique);
+
+    List<StatisticViewDto> getWindowedStatistic(StatisticWindowsQueryDto query);
+
+    void streamStatistic(String start, String end, List<String> uris, Boolean unique,
+                         Consumer<StatisticViewDto> consumer);
 }
@@ -4,17 +4,31 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.StatisticBatchResultDto;
 import ru.practicum.explorewithme.StatisticInDto;
+import ru.practicum.explorewithme.StatisticRejectionDto;
 import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.StatisticWindowDto;
+import ru.practicum.explorewithme.StatisticWindowsQueryDto;
 import ru.practicum.explorewithme.stats.exception.StatisticValidationException;
+import ru.practicum.explorewithme.stats.model.Statistic;
 import ru.practicum.explorewithme.stats.model.StatisticMapper;
-import ru.practicum.explorewithme.stats.repository.StatisticRepository;
+import ru.practicum.explorewithme.stats.storage.RecentStatisticCounters;
+import ru.practicum.explorewithme.stats.storage.StatisticStorage;
 import ru.practicum.explorewithme.stats.constant.Constant;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -22,39 +36,107 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StatisticServiceImpl implements StatisticService {
 
-    private final StatisticRepository statisticRepository;
+    private static final String OUT_OF_RETENTION = "Время запроса вне периода хранения статистики";
+
+    private final StatisticStorage statisticStorage;
+    private final RecentStatisticCounters recentCounters;
+    private final StatisticSubscriptionService subscriptionService;
+    private final Validator validator;
 
     @Transactional
     @Override
     public void postHit(StatisticInDto inDto) {
-        statisticRepository.save(StatisticMapper.toStatistic(inDto));
+        if (!statisticStorage.accepts(inDto.getTimestamp())) {
+            throw new StatisticValidationException(OUT_OF_RETENTION);
+        }
+        List<Statistic> statistics = List.of(StatisticMapper.toStatistic(inDto));
+        statisticStorage.saveAll(statistics);
+        recentCounters.recordAfterCommit(statistics);
+        subscriptionService.publishAfterCommit(statistics);
         log.info("Сохранение новой записи статистики");
     }
 
+    @Transactional
+    @Override
+    public StatisticBatchResultDto postHits(List<StatisticInDto> inDtos) {
+        List<Statistic> statistics = new ArrayList<>(inDtos.size());
+        List<StatisticRejectionDto> rejected = new ArrayList<>();
+
+        for (int i = 0; i < inDtos.size(); i++) {
+            StatisticInDto inDto = inDtos.get(i);
+            if (inDto == null) {
+                rejected.add(new StatisticRejectionDto(i, "Пустая запись статистики"));
+                continue;
+            }
+            Set<ConstraintViolation<StatisticInDto>> violations = validator.validate(inDto);
+            if (!violations.isEmpty()) {
+                rejected.add(new StatisticRejectionDto(i, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining("; "))));
+            } else if (!statisticStorage.accepts(inDto.getTimestamp())) {
+                rejected.add(new StatisticRejectionDto(i, OUT_OF_RETENTION));
+            } else {
+                statistics.add(StatisticMapper.toStatistic(inDto));
+            }
+        }
+        statisticStorage.saveAll(statistics);
+        recentCounters.recordAfterCommit(statistics);
+        subscriptionService.publishAfterCommit(statistics);
+        log.info("Сохранение пакета записей статистики: принято {}, отклонено {}", statistics.size(),
+                rejected.size());
+        return new StatisticBatchResultDto(statistics.size(), rejected);
+    }
+
     @Override
     public List<StatisticViewDto> getStatistic(String start, String end, List<String> uris, Boolean unique) {
         LocalDateTime startTime = parseTimeParam(start);
         LocalDateTime endTime = parseTimeParam(end);
         List<StatisticViewDto> dtos;
 
-        if (startTime.isAfter(endTime)) {
-            throw new StatisticValidationException("Начало временного промежутка не может быть позже конца");
-        }
-        if (uris != null) {
-            if (unique) {
-                dtos = statisticRepository.findAllStatisticsByTimeAndListOfUrisAndUniqueIp(startTime, endTime, uris);
-            } else {
-                dtos = statisticRepository.findAllStatisticsByTimeAndListOfUris(startTime, endTime, uris);
-            }
-        } else if (unique) {
-            dtos = statisticRepository.findAllStatisticsByTimeAndUniqueIp(startTime, endTime);
+        checkRange(startTime, endTime);
+        if (recentCounters.covers(startTime, endTime, unique)) {
+            dtos = recentCounters.findStatistics(startTime, endTime, uris, statisticStorage);
         } else {
-            dtos = statisticRepository.findAllStatisticsByTime(startTime, endTime);
+            dtos = statisticStorage.findStatistics(startTime, endTime, uris, unique);
         }
         log.info("Выполнение сбора статистики");
         return dtos;
     }
 
+    @Override
+    public List<StatisticViewDto> getWindowedStatistic(StatisticWindowsQueryDto query) {
+        LocalDateTime endTime = parseTimeParam(query.getEnd());
+        Map<String, LocalDateTime> starts = new HashMap<>();
+
+        for (StatisticWindowDto window : query.getWindows()) {
+            LocalDateTime startTime = parseTimeParam(window.getStart());
+            checkRange(startTime, endTime);
+            starts.merge(window.getUri(), startTime, (first, next) -> first.isBefore(next) ? first : next);
+        }
+        List<StatisticViewDto> dtos = starts.isEmpty()
+                ? new ArrayList<>()
+                : statisticStorage.findStatistics(starts, endTime, query.isUnique());
+        log.info("Выполнение сбора статистики по {} uri с собственным началом периода", starts.size());
+        return dtos;
+    }
+
+    @Override
+    public void streamStatistic(String start, String end, List<String> uris, Boolean unique,
+                                Consumer<StatisticViewDto> consumer) {
+        LocalDateTime startTime = parseTimeParam(start);
+        LocalDateTime endTime = parseTimeParam(end);
+
+        checkRange(startTime, endTime);
+        statisticStorage.streamStatistics(startTime, endTime, uris, unique, consumer);
+        log.info("Выполнение потоковой выдачи статистики");
+    }
+
+    private void checkRange(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime.isAfter(endTime)) {
+            throw new StatisticValidationException("Начало временного промежутка не может быть позже конца");
+        }
+    }
+
     private LocalDateTime parseTimeParam(String time) {
         try {
             return LocalDateTime.parse(time, DateTimeFormatter.ofPattern(Constant.TIME_FORMAT));
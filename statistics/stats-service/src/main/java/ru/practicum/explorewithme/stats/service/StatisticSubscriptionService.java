@@ -0,0 +1,233 @@
+package ru.practicum.explorewithme.stats.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import ru.practicum.explorewithme.StatisticDeltaBatchDto;
+import ru.practicum.explorewithme.StatisticDeltaDto;
+import ru.practicum.explorewithme.stats.constant.Constant;
+import ru.practicum.explorewithme.stats.exception.StatisticValidationException;
+import ru.practicum.explorewithme.stats.model.Statistic;
+import ru.practicum.explorewithme.stats.storage.StatisticStorage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Подписки на прирост статистики по префиксу uri. Сохранённые просмотры копятся по подписчикам и раз
+ * в push-interval-ms отправляются одной строкой NDJSON в открытый подписчиком поток. Посетитель считается
+ * новым, если в хранилище нет его более раннего посещения этого uri начиная с since подписки и подписчику
+ * он ещё не отправлялся.
+ */
+@Slf4j
+@Service
+public class StatisticSubscriptionService {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final StatisticStorage statisticStorage;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final long heartbeatNanos;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public StatisticSubscriptionService(StatisticStorage statisticStorage,
+                                        ObjectMapper objectMapper,
+                                        @Value("${stats.subscriptions.timeout-ms:0}") long timeoutMs,
+                                        @Value("${stats.subscriptions.heartbeat-ms:15000}") long heartbeatMs) {
+        this.statisticStorage = statisticStorage;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatNanos = heartbeatMs * 1_000_000;
+    }
+
+    public ResponseBodyEmitter subscribe(String uriPrefix, String since) {
+        LocalDateTime sinceTime;
+        try {
+            sinceTime = LocalDateTime.parse(since, DateTimeFormatter.ofPattern(Constant.TIME_FORMAT));
+        } catch (DateTimeParseException e) {
+            throw new StatisticValidationException("Передан некорректный формат времени");
+        }
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMs);
+        Subscription subscription = new Subscription(uriPrefix, sinceTime, emitter);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        log.info("Новая подписка на статистику uri с префиксом {}", uriPrefix);
+        return emitter;
+    }
+
+    public void publishAfterCommit(List<Statistic> statistics) {
+        if (subscriptions.isEmpty() || statistics.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(statistics);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(statistics);
+            }
+        });
+    }
+
+    /**
+     * Если подсчёт прироста не удался (например, хранилище недоступно), накопленное возвращается подписчику
+     * и уйдёт со следующей отправкой. Подписчик отключается только при ошибке записи в его поток.
+     */
+    @Scheduled(fixedDelayString = "${stats.subscriptions.push-interval-ms:1000}")
+    public void push() {
+        for (Subscription subscription : subscriptions) {
+            Map<String, PendingDelta> pending = subscription.drain();
+            Map<String, Set<String>> counted = new HashMap<>();
+            List<StatisticDeltaDto> deltas;
+            try {
+                deltas = pending.isEmpty() ? List.of() : toDeltas(subscription, pending, counted);
+            } catch (RuntimeException e) {
+                subscription.restore(pending);
+                log.warn("Не удалось подсчитать прирост статистики uri с префиксом {}, повтор позже: {}",
+                        subscription.uriPrefix, e.getMessage());
+                continue;
+            }
+            if (deltas.isEmpty() && System.nanoTime() - subscription.lastSent < heartbeatNanos) {
+                continue;
+            }
+            try {
+                send(subscription, deltas);
+                counted.forEach((uri, ips) -> subscription.counted.computeIfAbsent(uri, key -> new HashSet<>())
+                        .addAll(ips));
+            } catch (IOException | IllegalStateException e) {
+                subscriptions.remove(subscription);
+                subscription.emitter.completeWithError(e);
+                log.info("Подписчик на статистику uri с префиксом {} отключился", subscription.uriPrefix);
+            } catch (RuntimeException e) {
+                subscription.restore(pending);
+                log.warn("Не удалось отправить прирост статистики uri с префиксом {}, повтор позже: {}",
+                        subscription.uriPrefix, e.getMessage());
+            }
+        }
+    }
+
+    private void record(List<Statistic> statistics) {
+        for (Subscription subscription : subscriptions) {
+            subscription.record(statistics);
+        }
+    }
+
+    /**
+     * В counted попадают посетители, впервые посчитанные в этом приросте. Подписке они запоминаются только
+     * после успешной отправки, иначе повтор не посчитал бы их вовсе.
+     */
+    private List<StatisticDeltaDto> toDeltas(Subscription subscription, Map<String, PendingDelta> pending,
+                                             Map<String, Set<String>> counted) {
+        Set<String> ips = new HashSet<>();
+        pending.values().forEach(delta -> ips.addAll(delta.firstVisits.keySet()));
+        Map<String, Map<String, LocalDateTime>> stored = statisticStorage.findFirstVisits(pending.keySet(), ips,
+                subscription.since);
+
+        List<StatisticDeltaDto> deltas = new ArrayList<>(pending.size());
+        pending.forEach((uri, delta) -> {
+            Map<String, LocalDateTime> storedVisits = stored.getOrDefault(uri, Map.of());
+            Set<String> sent = subscription.counted.getOrDefault(uri, Set.of());
+            Set<String> first = new HashSet<>();
+            delta.firstVisits.forEach((ip, visit) -> {
+                if (!sent.contains(ip) && isFirst(visit, storedVisits.get(ip))) {
+                    first.add(ip);
+                }
+            });
+            if (!first.isEmpty()) {
+                counted.put(uri, first);
+            }
+            deltas.add(new StatisticDeltaDto(uri, delta.hits, first.size()));
+        });
+        return deltas;
+    }
+
+    private void send(Subscription subscription, List<StatisticDeltaDto> deltas) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        objectMapper.writeValue(line, new StatisticDeltaBatchDto(deltas));
+        line.write('\n');
+        subscription.emitter.send(line.toByteArray(), NDJSON);
+        subscription.lastSent = System.nanoTime();
+    }
+
+    /**
+     * Хранилище может держать время с точностью до секунды, поэтому сравнение идёт по секундам. Повторное
+     * посещение в ту же секунду так не отличить от первого, его отсекает множество уже отправленных посетителей.
+     */
+    private static boolean isFirst(LocalDateTime pendingVisit, LocalDateTime storedVisit) {
+        return storedVisit == null || !storedVisit.truncatedTo(ChronoUnit.SECONDS)
+                .isBefore(pendingVisit.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private static class Subscription {
+        private final String uriPrefix;
+        private final LocalDateTime since;
+        private final ResponseBodyEmitter emitter;
+        private Map<String, PendingDelta> pending = new HashMap<>();
+        /**
+         * Посетители, уже отправленные подписчику как уникальные, по uri. Меняется только в push.
+         */
+        private final Map<String, Set<String>> counted = new HashMap<>();
+        private volatile long lastSent = System.nanoTime();
+
+        private Subscription(String uriPrefix, LocalDateTime since, ResponseBodyEmitter emitter) {
+            this.uriPrefix = uriPrefix;
+            this.since = since;
+            this.emitter = emitter;
+        }
+
+        private synchronized void record(List<Statistic> statistics) {
+            for (Statistic statistic : statistics) {
+                if (statistic.getUri() == null || !statistic.getUri().startsWith(uriPrefix)
+                        || statistic.getTimestamp().isBefore(since)) {
+                    continue;
+                }
+                PendingDelta delta = pending.computeIfAbsent(statistic.getUri(), uri -> new PendingDelta());
+                delta.hits += statistic.getHits();
+                delta.firstVisits.merge(statistic.getIp(), statistic.getTimestamp(),
+                        (first, next) -> first.isBefore(next) ? first : next);
+            }
+        }
+
+        private synchronized Map<String, PendingDelta> drain() {
+            Map<String, PendingDelta> drained = pending;
+            pending = new HashMap<>();
+            return drained;
+        }
+
+        private synchronized void restore(Map<String, PendingDelta> drained) {
+            drained.forEach((uri, delta) -> pending.merge(uri, delta, (current, restored) -> {
+                restored.hits += current.hits;
+                current.firstVisits.forEach((ip, visit) -> restored.firstVisits.merge(ip, visit,
+                        (first, next) -> first.isBefore(next) ? first : next));
+                return restored;
+            }));
+        }
+    }
+
+    private static class PendingDelta {
+        private long hits;
+        private final Map<String, LocalDateTime> firstVisits = new HashMap<>();
+    }
+}
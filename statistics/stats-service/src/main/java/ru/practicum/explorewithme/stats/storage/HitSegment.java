@@ -0,0 +1,155 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Записи фиксированного размера: время и вес, app, uri, ip и контрольная сумма. Время в секундах занимает
+ * младшие 40 бит первого поля, в старших хранится вес - 1, поэтому у записей без веса там 0.
+ */
+class HitSegment implements Closeable {
+
+    static final int RECORD_SIZE = 24;
+    static final int MAX_HITS = 1 << 23;
+    private static final int TIME_BITS = 40;
+    private static final int BLOCK_RECORDS = 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long[] blockMin;
+    private final long[] blockMax;
+    private volatile int count;
+
+    private HitSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        int blocks = (capacity + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        this.blockMin = new long[blocks];
+        this.blockMax = new long[blocks];
+        Arrays.fill(blockMin, Long.MAX_VALUE);
+        Arrays.fill(blockMax, Long.MIN_VALUE);
+    }
+
+    static HitSegment open(Path path, int capacity, IntPredicate validApp, IntPredicate validUri,
+                           IntPredicate validIp) throws IOException {
+        boolean exists = Files.exists(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int records = exists ? (int) (channel.size() / RECORD_SIZE) : capacity;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_SIZE);
+        HitSegment segment = new HitSegment(path, channel, buffer, records);
+        segment.recover(validApp, validUri, validIp);
+        return segment;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    /**
+     * hits - от 1 до {@link #MAX_HITS}.
+     */
+    void append(long timestamp, int app, int uri, int ip, int hits) {
+        int index = count;
+        int offset = index * RECORD_SIZE;
+        long packed = (long) (hits - 1) << TIME_BITS | timestamp & ((1L << TIME_BITS) - 1);
+        buffer.putLong(offset, packed);
+        buffer.putInt(offset + 8, app);
+        buffer.putInt(offset + 12, uri);
+        buffer.putInt(offset + 16, ip);
+        buffer.putInt(offset + 20, checksum(packed, app, uri, ip));
+        index(index, timestamp);
+        count = index + 1;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void scan(long from, long to, IntPredicate uriFilter, HitVisitor visitor) {
+        int records = count;
+        for (int block = 0; block * BLOCK_RECORDS < records; block++) {
+            if (blockMax[block] < from || blockMin[block] > to) {
+                continue;
+            }
+            int end = Math.min(records, (block + 1) * BLOCK_RECORDS);
+            for (int index = block * BLOCK_RECORDS; index < end; index++) {
+                int offset = index * RECORD_SIZE;
+                long packed = buffer.getLong(offset);
+                long timestamp = timestamp(packed);
+                if (timestamp < from || timestamp > to) {
+                    continue;
+                }
+                int uri = buffer.getInt(offset + 12);
+                if (uriFilter.test(uri)) {
+                    visitor.visit(timestamp, buffer.getInt(offset + 8), uri, buffer.getInt(offset + 16),
+                            (int) (packed >>> TIME_BITS) + 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void recover(IntPredicate validApp, IntPredicate validUri, IntPredicate validIp) {
+        int index = 0;
+        while (index < capacity) {
+            int offset = index * RECORD_SIZE;
+            long packed = buffer.getLong(offset);
+            int app = buffer.getInt(offset + 8);
+            int uri = buffer.getInt(offset + 12);
+            int ip = buffer.getInt(offset + 16);
+            if (buffer.getInt(offset + 20) != checksum(packed, app, uri, ip)
+                    || !validApp.test(app) || !validUri.test(uri) || !validIp.test(ip)) {
+                break;
+            }
+            index(index, timestamp(packed));
+            index++;
+        }
+        count = index;
+    }
+
+    private void index(int index, long timestamp) {
+        int block = index / BLOCK_RECORDS;
+        blockMin[block] = Math.min(blockMin[block], timestamp);
+        blockMax[block] = Math.max(blockMax[block], timestamp);
+    }
+
+    private static long timestamp(long packed) {
+        return packed << (Long.SIZE - TIME_BITS) >> (Long.SIZE - TIME_BITS);
+    }
+
+    private static int checksum(long timestamp, int app, int uri, int ip) {
+        long hash = timestamp;
+        hash = hash * 31 + app;
+        hash = hash * 31 + uri;
+        hash = hash * 31 + ip;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash | 1;
+    }
+
+    interface HitVisitor {
+        void visit(long timestamp, int app, int uri, int ip, int hits);
+    }
+}
@@ -0,0 +1,197 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+import ru.practicum.explorewithme.stats.model.Statistic;
+import ru.practicum.explorewithme.stats.model.StatisticKey;
+import ru.practicum.explorewithme.stats.repository.IpDictionaryRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticBatchRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRollupRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticStreamRepository;
+import ru.practicum.explorewithme.stats.service.StatisticPartitionService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.storage", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcStatisticStorage implements StatisticStorage {
+
+    private final StatisticRepository statisticRepository;
+    private final StatisticBatchRepository statisticBatchRepository;
+    private final StatisticRollupRepository statisticRollupRepository;
+    private final StatisticStreamRepository statisticStreamRepository;
+    private final IpDictionaryRepository ipDictionaryRepository;
+    private final StatisticPartitionService partitionService;
+
+    @Value("${stats.query.use-rollups:true}")
+    private boolean useRollups;
+
+    @Override
+    public boolean accepts(LocalDateTime timestamp) {
+        return partitionService.accepts(timestamp);
+    }
+
+    @Override
+    public void saveAll(List<Statistic> statistics) {
+        statisticBatchRepository.saveAll(statistics);
+        statisticRollupRepository.apply(statistics, ipDictionaryRepository.encode(statistics.stream()
+                .map(Statistic::getIp)
+                .collect(Collectors.toSet())));
+    }
+
+    /**
+     * Начало периода сдвигается к границе хранения: раньше неё нет сырых записей, а агрегаты устаревшего дня
+     * могут дожить до ближайшего обслуживания секций.
+     */
+    @Override
+    public List<StatisticViewDto> findStatistics(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                 boolean unique) {
+        LocalDateTime border = partitionService.retentionBorder();
+        if (end.isBefore(border)) {
+            return new ArrayList<>();
+        }
+        start = start.isBefore(border) ? border : start;
+        if (useRollups) {
+            return findFromRollups(start, end.plusSeconds(1), uris, unique);
+        }
+        if (uris != null) {
+            if (unique) {
+                return statisticRepository.findAllStatisticsByTimeAndListOfUrisAndUniqueIp(start, end, uris);
+            }
+            return statisticRepository.findAllStatisticsByTimeAndListOfUris(start, end, uris);
+        }
+        if (unique) {
+            return statisticRepository.findAllStatisticsByTimeAndUniqueIp(start, end);
+        }
+        return statisticRepository.findAllStatisticsByTime(start, end);
+    }
+
+    /**
+     * Период каждого uri раскладывается планировщиком на куски по таблицам агрегатов, куски одной таблицы
+     * для всех uri запрашиваются вместе.
+     */
+    @Override
+    public List<StatisticViewDto> findStatistics(Map<String, LocalDateTime> starts, LocalDateTime end,
+                                                 boolean unique) {
+        LocalDateTime to = end.plusSeconds(1);
+        LocalDateTime border = partitionService.retentionBorder();
+        Map<RollupGranularity, List<StatisticUriRange>> plans = new HashMap<>();
+
+        starts.forEach((uri, uriStart) -> {
+            LocalDateTime start = uriStart.isBefore(border) ? border : uriStart;
+            if (!start.isBefore(to)) {
+                return;
+            }
+            List<StatisticQueryRange> ranges = useRollups
+                    ? StatisticQueryPlanner.plan(start, to)
+                    : List.of(new StatisticQueryRange(null, start, to));
+            for (StatisticQueryRange range : ranges) {
+                plans.computeIfAbsent(range.getGranularity(), g -> new ArrayList<>())
+                        .add(new StatisticUriRange(uri, range.getFrom(), range.getTo()));
+            }
+        });
+        Map<StatisticKey, Long> hits = new HashMap<>();
+        if (unique) {
+            Map<StatisticKey, RoaringBitmap> visitors = new HashMap<>();
+            plans.forEach((granularity, ranges) -> {
+                if (granularity == null) {
+                    statisticRollupRepository.mergeRawVisitors(ranges, visitors);
+                } else {
+                    statisticRollupRepository.mergeVisitors(granularity, ranges, visitors);
+                }
+            });
+            visitors.forEach((key, bitmap) -> hits.put(key, bitmap.getLongCardinality()));
+        } else {
+            plans.forEach((granularity, ranges) -> {
+                if (granularity == null) {
+                    statisticRollupRepository.sumRawHits(ranges, hits);
+                } else {
+                    statisticRollupRepository.sumHits(granularity, ranges, hits);
+                }
+            });
+        }
+        return toSortedViews(hits);
+    }
+
+    @Override
+    public Map<String, Map<String, LocalDateTime>> findFirstVisits(Collection<String> uris, Collection<String> ips,
+                                                                   LocalDateTime from) {
+        return statisticBatchRepository.findFirstVisits(uris, ips, from);
+    }
+
+    @Override
+    public void streamStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                 Consumer<StatisticViewDto> consumer) {
+        LocalDateTime to = end.plusSeconds(1);
+        LocalDateTime border = partitionService.retentionBorder();
+
+        if (uris != null && uris.isEmpty() || end.isBefore(border)) {
+            return;
+        }
+        start = start.isBefore(border) ? border : start;
+        if (unique) {
+            statisticStreamRepository.streamUniqueHits(start, to, uris, consumer);
+        } else if (useRollups) {
+            statisticStreamRepository.streamHits(StatisticQueryPlanner.plan(start, to), uris, consumer);
+        } else {
+            statisticStreamRepository.streamHits(List.of(new StatisticQueryRange(null, start, to)), uris, consumer);
+        }
+    }
+
+    private List<StatisticViewDto> findFromRollups(LocalDateTime from, LocalDateTime to, List<String> uris,
+                                                   boolean unique) {
+        Map<StatisticKey, Long> hits = new HashMap<>();
+
+        if (uris != null && uris.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<StatisticQueryRange> ranges = StatisticQueryPlanner.plan(from, to);
+        if (unique) {
+            Map<StatisticKey, RoaringBitmap> visitors = new HashMap<>();
+            for (StatisticQueryRange range : ranges) {
+                if (range.isRaw()) {
+                    statisticRollupRepository.mergeRawVisitors(range.getFrom(), range.getTo(), uris, visitors);
+                } else {
+                    statisticRollupRepository.mergeVisitors(range.getGranularity(), range.getFrom(), range.getTo(),
+                            uris, visitors);
+                }
+            }
+            visitors.forEach((key, bitmap) -> hits.put(key, bitmap.getLongCardinality()));
+        } else {
+            for (StatisticQueryRange range : ranges) {
+                if (range.isRaw()) {
+                    statisticRollupRepository.sumRawHits(range.getFrom(), range.getTo(), uris, hits);
+                } else {
+                    statisticRollupRepository.sumHits(range.getGranularity(), range.getFrom(), range.getTo(), uris,
+                            hits);
+                }
+            }
+        }
+        log.debug("План запроса статистики: {}", ranges);
+        return toSortedViews(hits);
+    }
+
+    private List<StatisticViewDto> toSortedViews(Map<StatisticKey, Long> hits) {
+        List<StatisticViewDto> dtos = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> dtos.add(new StatisticViewDto(key.getApp(), key.getUri(), count)));
+        dtos.sort(Comparator.comparingLong(StatisticViewDto::getHits).reversed());
+        return dtos;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class MinuteRing {
+
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final AtomicReferenceArray<MinuteCounter> slots;
+    private final AtomicLong lastMinute = new AtomicLong(Long.MIN_VALUE + 1);
+
+    MinuteRing(int minutes) {
+        this.slots = new AtomicReferenceArray<>(minutes);
+    }
+
+    /**
+     * Возвращает false, если кольцо уже выведено из оборота и запись нужно повторить в новом кольце.
+     */
+    boolean add(long minute, long hits) {
+        long last;
+        do {
+            last = lastMinute.get();
+            if (last == RETIRED) {
+                return false;
+            }
+        } while (last < minute && !lastMinute.compareAndSet(last, minute));
+
+        int slot = (int) Math.floorMod(minute, (long) slots.length());
+        MinuteCounter counter = slots.get(slot);
+        while (counter == null || counter.minute < minute) {
+            MinuteCounter fresh = new MinuteCounter(minute);
+            if (slots.compareAndSet(slot, counter, fresh)) {
+                counter = fresh;
+                break;
+            }
+            counter = slots.get(slot);
+        }
+        if (counter.minute == minute) {
+            counter.hits.add(hits);
+        }
+        return true;
+    }
+
+    long sum(long fromMinute, long toMinute) {
+        long sum = 0;
+        for (long minute = fromMinute; minute < toMinute; minute++) {
+            MinuteCounter counter = slots.get((int) Math.floorMod(minute, (long) slots.length()));
+            if (counter != null && counter.minute == minute) {
+                sum += counter.hits.sum();
+            }
+        }
+        return sum;
+    }
+
+    boolean retireIfOlderThan(long minute) {
+        long last = lastMinute.get();
+        return last != RETIRED && last < minute && lastMinute.compareAndSet(last, RETIRED);
+    }
+
+    private static class MinuteCounter {
+        private final long minute;
+        private final LongAdder hits = new LongAdder();
+
+        private MinuteCounter(long minute) {
+            this.minute = minute;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.model.Statistic;
+import ru.practicum.explorewithme.stats.model.StatisticKey;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class RecentStatisticCounters {
+
+    private static final int FUTURE_MINUTES = 5;
+
+    private final boolean enabled;
+    private final int horizonMinutes;
+    private final long coveredFrom;
+    private final Map<StatisticKey, MinuteRing> rings = new ConcurrentHashMap<>();
+    private final Set<String> apps = ConcurrentHashMap.newKeySet();
+
+    public RecentStatisticCounters(@Value("${stats.recent.enabled:true}") boolean enabled,
+                                   @Value("${stats.recent.horizon-hours:48}") int horizonHours) {
+        this.enabled = enabled;
+        this.horizonMinutes = horizonHours * 60;
+        this.coveredFrom = minuteOf(LocalDateTime.now()) + 1;
+    }
+
+    public void recordAfterCommit(List<Statistic> statistics) {
+        if (!enabled || statistics.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(statistics);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(statistics);
+            }
+        });
+    }
+
+    /**
+     * Промежуток обслуживается из памяти, если в нём есть хотя бы одна целая минута внутри горизонта.
+     * Уникальные посещения поминутными счётчиками не посчитать, такие запросы идут в хранилище.
+     */
+    public boolean covers(LocalDateTime start, LocalDateTime end, boolean unique) {
+        if (!enabled || unique) {
+            return false;
+        }
+        long now = minuteOf(LocalDateTime.now());
+        long from = ceilMinute(start);
+        long to = Math.min(minuteOf(end.plusSeconds(1)), now + FUTURE_MINUTES);
+        return from >= coveredFrom && from > now - horizonMinutes && from < to;
+    }
+
+    public List<StatisticViewDto> findStatistics(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                 StatisticStorage storage) {
+        long now = minuteOf(LocalDateTime.now());
+        long from = ceilMinute(start);
+        long to = Math.min(minuteOf(end.plusSeconds(1)), now + FUTURE_MINUTES);
+        Map<StatisticKey, Long> hits = new HashMap<>();
+
+        if (uris != null && uris.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (uris == null) {
+            rings.forEach((key, ring) -> addHits(hits, key, ring.sum(from, to)));
+        } else {
+            for (String uri : uris) {
+                for (String app : apps) {
+                    StatisticKey key = new StatisticKey(app, uri);
+                    MinuteRing ring = rings.get(key);
+                    if (ring != null) {
+                        addHits(hits, key, ring.sum(from, to));
+                    }
+                }
+            }
+        }
+        LocalDateTime memoryFrom = timeOf(from);
+        LocalDateTime memoryTo = timeOf(to);
+        if (start.isBefore(memoryFrom)) {
+            mergeStored(hits, storage.findStatistics(start, memoryFrom.minusSeconds(1), uris, false));
+        }
+        if (!end.isBefore(memoryTo)) {
+            mergeStored(hits, storage.findStatistics(memoryTo, end, uris, false));
+        }
+
+        List<StatisticViewDto> dtos = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> dtos.add(new StatisticViewDto(key.getApp(), key.getUri(), count)));
+        dtos.sort(Comparator.comparingLong(StatisticViewDto::getHits).reversed());
+        return dtos;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.recent.cleanup-ms:600000}")
+    public void evictIdle() {
+        long border = minuteOf(LocalDateTime.now()) - horizonMinutes - FUTURE_MINUTES;
+        int before = rings.size();
+        rings.entrySet().removeIf(entry -> entry.getValue().retireIfOlderThan(border));
+        log.debug("Удалено неактивных счётчиков статистики: {}", before - rings.size());
+    }
+
+    private void record(List<Statistic> statistics) {
+        long now = minuteOf(LocalDateTime.now());
+        Map<StatisticKey, Map<Long, Long>> grouped = new HashMap<>();
+
+        for (Statistic statistic : statistics) {
+            long minute = minuteOf(statistic.getTimestamp());
+            if (minute >= now - horizonMinutes && minute < now + FUTURE_MINUTES) {
+                grouped.computeIfAbsent(new StatisticKey(statistic.getApp(), statistic.getUri()),
+                        key -> new HashMap<>()).merge(minute, (long) statistic.getHits(), Long::sum);
+            }
+        }
+        grouped.forEach((key, minutes) -> {
+            apps.add(key.getApp());
+            minutes.forEach((minute, count) -> {
+                MinuteRing ring = ringOf(key);
+                while (!ring.add(minute, count)) {
+                    rings.remove(key, ring);
+                    ring = ringOf(key);
+                }
+            });
+        });
+    }
+
+    private MinuteRing ringOf(StatisticKey key) {
+        return rings.computeIfAbsent(key, k -> new MinuteRing(horizonMinutes + FUTURE_MINUTES));
+    }
+
+    private void mergeStored(Map<StatisticKey, Long> hits, List<StatisticViewDto> stored) {
+        stored.forEach(dto -> addHits(hits, new StatisticKey(dto.getApp(), dto.getUri()), dto.getHits()));
+    }
+
+    private static void addHits(Map<StatisticKey, Long> hits, StatisticKey key, long count) {
+        if (count > 0) {
+            hits.merge(key, count, Long::sum);
+        }
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static long ceilMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC) + 59, 60);
+    }
+
+    private static LocalDateTime timeOf(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,262 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.model.Statistic;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "segment")
+public class SegmentStatisticStorage implements StatisticStorage {
+
+    private static final String SEGMENT_PREFIX = "hits-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final boolean forceOnWrite;
+    private final StringDictionary apps;
+    private final StringDictionary uris;
+    private final StringDictionary ips;
+    private final List<HitSegment> segments = new CopyOnWriteArrayList<>();
+    private HitSegment active;
+    private int nextSegment;
+
+    public SegmentStatisticStorage(@Value("${stats.segment.directory:stats-data}") String directory,
+                                   @Value("${stats.segment.records:1048576}") int segmentRecords,
+                                   @Value("${stats.segment.force-on-write:false}") boolean forceOnWrite)
+            throws IOException {
+        this.directory = Files.createDirectories(Path.of(directory));
+        this.segmentRecords = segmentRecords;
+        this.forceOnWrite = forceOnWrite;
+        this.apps = new StringDictionary(this.directory.resolve("apps.dict"));
+        this.uris = new StringDictionary(this.directory.resolve("uris.dict"));
+        this.ips = new StringDictionary(this.directory.resolve("ips.dict"));
+        openSegments();
+    }
+
+    @Override
+    public boolean accepts(LocalDateTime timestamp) {
+        return true;
+    }
+
+    @Override
+    public synchronized void saveAll(List<Statistic> statistics) {
+        if (statistics.isEmpty()) {
+            return;
+        }
+        try {
+            for (Statistic statistic : statistics) {
+                long timestamp = statistic.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+                int app = apps.idOf(statistic.getApp());
+                int uri = uris.idOf(statistic.getUri());
+                int ip = ips.idOf(statistic.getIp());
+                for (int hits = statistic.getHits(); hits > 0; hits -= HitSegment.MAX_HITS) {
+                    if (active.isFull()) {
+                        roll();
+                    }
+                    active.append(timestamp, app, uri, ip, Math.min(hits, HitSegment.MAX_HITS));
+                }
+            }
+            apps.flush(forceOnWrite);
+            uris.flush(forceOnWrite);
+            ips.flush(forceOnWrite);
+            if (forceOnWrite) {
+                active.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<StatisticViewDto> findStatistics(LocalDateTime start, LocalDateTime end, List<String> uriFilter,
+                                                 boolean unique) {
+        long from = start.toEpochSecond(ZoneOffset.UTC);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        IntPredicate filter = uriPredicate(uriFilter);
+        Map<Long, long[]> hits = new HashMap<>();
+        Map<Long, RoaringBitmap> visitors = new HashMap<>();
+
+        for (HitSegment segment : segments) {
+            if (unique) {
+                segment.scan(from, to, filter, (timestamp, app, uri, ip, weight) ->
+                        visitors.computeIfAbsent(key(app, uri), k -> new RoaringBitmap()).add(ip));
+            } else {
+                segment.scan(from, to, filter, (timestamp, app, uri, ip, weight) ->
+                        hits.computeIfAbsent(key(app, uri), k -> new long[1])[0] += weight);
+            }
+        }
+        List<StatisticViewDto> dtos = new ArrayList<>();
+        if (unique) {
+            visitors.forEach((key, bitmap) -> dtos.add(toView(key, bitmap.getLongCardinality())));
+        } else {
+            hits.forEach((key, count) -> dtos.add(toView(key, count[0])));
+        }
+        dtos.sort(Comparator.comparingLong(StatisticViewDto::getHits).reversed());
+        return dtos;
+    }
+
+    /**
+     * Один проход по сегментам с самого раннего начала, записи раньше начала своего uri пропускаются.
+     */
+    @Override
+    public List<StatisticViewDto> findStatistics(Map<String, LocalDateTime> starts, LocalDateTime end,
+                                                 boolean unique) {
+        long[] uriFrom = new long[uris.size()];
+        Arrays.fill(uriFrom, Long.MAX_VALUE);
+        long from = Long.MAX_VALUE;
+        for (Map.Entry<String, LocalDateTime> start : starts.entrySet()) {
+            Integer id = uris.find(start.getKey());
+            if (id != null && id < uriFrom.length) {
+                uriFrom[id] = start.getValue().toEpochSecond(ZoneOffset.UTC);
+                from = Math.min(from, uriFrom[id]);
+            }
+        }
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        IntPredicate filter = uri -> uri < uriFrom.length && uriFrom[uri] != Long.MAX_VALUE;
+        Map<Long, long[]> hits = new HashMap<>();
+        Map<Long, RoaringBitmap> visitors = new HashMap<>();
+
+        for (HitSegment segment : segments) {
+            segment.scan(from, to, filter, (timestamp, app, uri, ip, weight) -> {
+                if (timestamp < uriFrom[uri]) {
+                    return;
+                }
+                if (unique) {
+                    visitors.computeIfAbsent(key(app, uri), k -> new RoaringBitmap()).add(ip);
+                } else {
+                    hits.computeIfAbsent(key(app, uri), k -> new long[1])[0] += weight;
+                }
+            });
+        }
+        List<StatisticViewDto> dtos = new ArrayList<>();
+        if (unique) {
+            visitors.forEach((key, bitmap) -> dtos.add(toView(key, bitmap.getLongCardinality())));
+        } else {
+            hits.forEach((key, count) -> dtos.add(toView(key, count[0])));
+        }
+        dtos.sort(Comparator.comparingLong(StatisticViewDto::getHits).reversed());
+        return dtos;
+    }
+
+    @Override
+    public Map<String, Map<String, LocalDateTime>> findFirstVisits(Collection<String> uriFilter,
+                                                                   Collection<String> ipFilter,
+                                                                   LocalDateTime from) {
+        IntPredicate filter = uriPredicate(new ArrayList<>(uriFilter));
+        RoaringBitmap ipIds = new RoaringBitmap();
+        for (String ip : ipFilter) {
+            Integer id = ips.find(ip);
+            if (id != null) {
+                ipIds.add(id);
+            }
+        }
+        Map<Long, Long> firstVisits = new HashMap<>();
+        for (HitSegment segment : segments) {
+            segment.scan(from.toEpochSecond(ZoneOffset.UTC), Long.MAX_VALUE, filter,
+                    (timestamp, app, uri, ip, weight) -> {
+                        if (ipIds.contains(ip)) {
+                            firstVisits.merge(key(uri, ip), timestamp, Math::min);
+                        }
+                    });
+        }
+        Map<String, Map<String, LocalDateTime>> visits = new HashMap<>();
+        firstVisits.forEach((key, timestamp) -> visits
+                .computeIfAbsent(uris.valueOf((int) (key >>> 32)), uri -> new HashMap<>())
+                .put(ips.valueOf((int) (long) key), LocalDateTime.ofEpochSecond(timestamp, 0, ZoneOffset.UTC)));
+        return visits;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        apps.close();
+        uris.close();
+        ips.close();
+        for (HitSegment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private void openSegments() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            segments.add(openSegment(path));
+            nextSegment++;
+        }
+        if (segments.isEmpty() || segments.get(segments.size() - 1).isFull()) {
+            roll();
+        } else {
+            active = segments.get(segments.size() - 1);
+        }
+        log.info("Открыто хранилище статистики {}, сегментов: {}", directory, segments.size());
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            apps.flush(true);
+            uris.flush(true);
+            ips.flush(true);
+            active.force();
+        }
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+        active = openSegment(path);
+        segments.add(active);
+        log.info("Создан новый сегмент статистики {}", path);
+    }
+
+    private HitSegment openSegment(Path path) throws IOException {
+        return HitSegment.open(path, segmentRecords, id -> id < apps.size(), id -> id < uris.size(),
+                id -> id < ips.size());
+    }
+
+    private IntPredicate uriPredicate(List<String> uriFilter) {
+        if (uriFilter == null) {
+            return uri -> true;
+        }
+        RoaringBitmap ids = new RoaringBitmap();
+        for (String uri : uriFilter) {
+            Integer id = uris.find(uri);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids::contains;
+    }
+
+    private StatisticViewDto toView(long key, long hits) {
+        return new StatisticViewDto(apps.valueOf((int) (key >>> 32)), uris.valueOf((int) key), hits);
+    }
+
+    private static long key(int app, int uri) {
+        return ((long) app << 32) | (uri & 0xFFFFFFFFL);
+    }
+}
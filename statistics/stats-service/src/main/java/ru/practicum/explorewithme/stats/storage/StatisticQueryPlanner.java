@@ -0,0 +1,36 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StatisticQueryPlanner {
+
+    public static List<StatisticQueryRange> plan(LocalDateTime from, LocalDateTime to) {
+        List<StatisticQueryRange> ranges = new ArrayList<>();
+        split(ranges, from, to, RollupGranularity.DAY);
+        return ranges;
+    }
+
+    private static void split(List<StatisticQueryRange> ranges, LocalDateTime from, LocalDateTime to,
+                              RollupGranularity granularity) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (granularity == null) {
+            ranges.add(new StatisticQueryRange(null, from, to));
+            return;
+        }
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+        if (!alignedFrom.isBefore(alignedTo)) {
+            split(ranges, from, to, granularity.finer());
+            return;
+        }
+        split(ranges, from, alignedFrom, granularity.finer());
+        ranges.add(new StatisticQueryRange(granularity, alignedFrom, alignedTo));
+        split(ranges, alignedTo, to, granularity.finer());
+    }
+}
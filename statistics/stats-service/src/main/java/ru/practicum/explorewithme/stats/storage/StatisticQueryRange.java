@@ -0,0 +1,18 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import lombok.Value;
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+
+@Value
+public class StatisticQueryRange {
+
+    RollupGranularity granularity;
+    LocalDateTime from;
+    LocalDateTime to;
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
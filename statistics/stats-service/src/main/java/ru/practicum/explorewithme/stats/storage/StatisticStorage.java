@@ -0,0 +1,47 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.model.Statistic;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface StatisticStorage {
+
+    boolean accepts(LocalDateTime timestamp);
+
+    void saveAll(List<Statistic> statistics);
+
+    List<StatisticViewDto> findStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+
+    /**
+     * Статистика, в которой у каждого uri своё начало периода starts, а конец end общий. По умолчанию uri
+     * с одинаковым началом запрашиваются вместе.
+     */
+    default List<StatisticViewDto> findStatistics(Map<String, LocalDateTime> starts, LocalDateTime end,
+                                                  boolean unique) {
+        Map<LocalDateTime, List<String>> byStart = new HashMap<>();
+        starts.forEach((uri, start) -> byStart.computeIfAbsent(start, s -> new ArrayList<>()).add(uri));
+        List<StatisticViewDto> dtos = new ArrayList<>();
+        byStart.forEach((start, uris) -> dtos.addAll(findStatistics(start, end, uris, unique)));
+        dtos.sort(Comparator.comparingLong(StatisticViewDto::getHits).reversed());
+        return dtos;
+    }
+
+    /**
+     * Время первого посещения начиная с from для каждой пары uri и ip из переданных, ключ - uri, затем ip.
+     */
+    Map<String, Map<String, LocalDateTime>> findFirstVisits(Collection<String> uris, Collection<String> ips,
+                                                            LocalDateTime from);
+
+    default void streamStatistics(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                  Consumer<StatisticViewDto> consumer) {
+        findStatistics(start, end, uris, unique).forEach(consumer);
+    }
+}
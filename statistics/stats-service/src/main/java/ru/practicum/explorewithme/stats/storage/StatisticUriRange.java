@@ -0,0 +1,13 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class StatisticUriRange {
+
+    String uri;
+    LocalDateTime from;
+    LocalDateTime to;
+}
@@ -0,0 +1,92 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class StringDictionary implements Closeable {
+
+    private final FileChannel channel;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<ByteBuffer> pending = new ArrayList<>();
+
+    StringDictionary(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        load();
+    }
+
+    synchronized int idOf(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        id = values.size();
+        ids.put(value, id);
+        values.add(value);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        pending.add(ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).flip());
+        return id;
+    }
+
+    synchronized Integer find(String value) {
+        return ids.get(value);
+    }
+
+    synchronized String valueOf(int id) {
+        return values.get(id);
+    }
+
+    synchronized int size() {
+        return values.size();
+    }
+
+    synchronized void flush(boolean force) throws IOException {
+        for (ByteBuffer buffer : pending) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        pending.clear();
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush(true);
+        channel.close();
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        long position = 0;
+        while (position + Integer.BYTES <= size) {
+            length.clear();
+            channel.read(length, position);
+            int bytes = length.flip().getInt();
+            if (bytes < 0 || position + Integer.BYTES + bytes > size) {
+                break;
+            }
+            ByteBuffer value = ByteBuffer.allocate(bytes);
+            channel.read(value, position + Integer.BYTES);
+            String decoded = new String(value.array(), StandardCharsets.UTF_8);
+            ids.put(decoded, values.size());
+            values.add(decoded);
+            position += Integer.BYTES + bytes;
+        }
+        channel.truncate(position);
+        channel.position(position);
+    }
+}
@@ -1,8 +1,61 @@
-  DROP TABLE IF EXISTS statistics;
+  DO '
+  BEGIN
+    IF to_regclass(''statistics'') IS NOT NULL AND NOT EXISTS (
+        SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(''statistics'')) THEN
+      RAISE NOTICE ''statistics is not partitioned, renaming it to statistics_legacy'';
+      ALTER TABLE statistics ALTER COLUMN id DROP IDENTITY IF EXISTS;
+      ALTER TABLE statistics ADD COLUMN IF NOT EXISTS hits INTEGER DEFAULT 1 NOT NULL;
+      ALTER TABLE statistics RENAME TO statistics_legacy;
+      ALTER INDEX IF EXISTS statistics_pkey RENAME TO statistics_legacy_pkey;
+      ALTER INDEX IF EXISTS statistics_pk RENAME TO statistics_legacy_pk;
+      ALTER INDEX IF EXISTS statistics_uri_timestamp_idx RENAME TO statistics_legacy_uri_timestamp_idx;
+    END IF;
+  END';
+
+  CREATE SEQUENCE IF NOT EXISTS statistics_id_seq;
 
   CREATE TABLE IF NOT EXISTS statistics (
-  id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  id BIGINT DEFAULT nextval('statistics_id_seq') NOT NULL,
   app VARCHAR(40),
   uri VARCHAR(500),
   ip VARCHAR(40),
-  timestamp_hit TIMESTAMP WITHOUT TIME ZONE NOT NULL);
\ No newline at end of file
+  timestamp_hit TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  hits INTEGER DEFAULT 1 NOT NULL,
+  CONSTRAINT statistics_pk PRIMARY KEY (id, timestamp_hit)) PARTITION BY RANGE (timestamp_hit);
+
+  ALTER TABLE statistics ADD COLUMN IF NOT EXISTS hits INTEGER DEFAULT 1 NOT NULL;
+
+  CREATE INDEX IF NOT EXISTS statistics_uri_timestamp_idx ON statistics (uri, timestamp_hit);
+
+  CREATE TABLE IF NOT EXISTS ip_dictionary (
+  id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  ip VARCHAR(40)                            NOT NULL,
+  CONSTRAINT uq_ip_dictionary_ip UNIQUE (ip));
+
+  CREATE TABLE IF NOT EXISTS statistics_minute (
+  uri VARCHAR(500)                          NOT NULL,
+  bucket_start TIMESTAMP WITHOUT TIME ZONE  NOT NULL,
+  app VARCHAR(40)                           NOT NULL,
+  hits BIGINT                               NOT NULL,
+  visitors BYTEA                            NOT NULL,
+  CONSTRAINT statistics_minute_pk PRIMARY KEY (uri, bucket_start, app));
+
+  CREATE TABLE IF NOT EXISTS statistics_hour (
+  uri VARCHAR(500)                          NOT NULL,
+  bucket_start TIMESTAMP WITHOUT TIME ZONE  NOT NULL,
+  app VARCHAR(40)                           NOT NULL,
+  hits BIGINT                               NOT NULL,
+  visitors BYTEA                            NOT NULL,
+  CONSTRAINT statistics_hour_pk PRIMARY KEY (uri, bucket_start, app));
+
+  CREATE TABLE IF NOT EXISTS statistics_day (
+  uri VARCHAR(500)                          NOT NULL,
+  bucket_start TIMESTAMP WITHOUT TIME ZONE  NOT NULL,
+  app VARCHAR(40)                           NOT NULL,
+  hits BIGINT                               NOT NULL,
+  visitors BYTEA                            NOT NULL,
+  CONSTRAINT statistics_day_pk PRIMARY KEY (uri, bucket_start, app));
+
+  CREATE INDEX IF NOT EXISTS statistics_minute_bucket_idx ON statistics_minute (bucket_start);
+  CREATE INDEX IF NOT EXISTS statistics_hour_bucket_idx ON statistics_hour (bucket_start);
+  CREATE INDEX IF NOT EXISTS statistics_day_bucket_idx ON statistics_day (bucket_start);
@@ -0,0 +1,153 @@
+package ru.practicum.explorewithme.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.explorewithme.StatisticClient;
+import ru.practicum.explorewithme.StatisticDeltaBatchDto;
+import ru.practicum.explorewithme.StatisticDeltaDto;
+import ru.practicum.explorewithme.StatisticInDto;
+import ru.practicum.explorewithme.StatisticShards;
+import ru.practicum.explorewithme.stats.constant.Constant;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сервис статистики на случайном порту и настоящий {@link StatisticClient}: просмотры, отправленные клиентом,
+ * приходят приростом в поток подписки. Хранилище - сегменты во временном каталоге, база не нужна.
+ */
+@SpringBootTest(classes = StatisticSubscriptionIntegrationTest.StatsApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "stats.storage=segment",
+                "stats.subscriptions.push-interval-ms=100",
+                "stats.subscriptions.heartbeat-ms=200",
+                "spring.sql.init.mode=never",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.url=jdbc:h2:mem:stats-subscription",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+        })
+class StatisticSubscriptionIntegrationTest {
+
+    private static final String APP = "ewm-main-service";
+    private static final long WAIT_MS = 10_000;
+
+    @LocalServerPort
+    private int port;
+    private StatisticClient client;
+    private Thread subscriber;
+    private final BlockingQueue<StatisticDeltaBatchDto> batches = new LinkedBlockingQueue<>();
+
+    @DynamicPropertySource
+    static void segmentDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("stats-segments").toString();
+        registry.add("stats.segment.directory", () -> directory);
+    }
+
+    @BeforeEach
+    void subscribe() throws InterruptedException {
+        client = new StatisticClient(new StatisticShards(List.of("http://localhost:" + port)), true, WAIT_MS,
+                new RestTemplateBuilder());
+        String since = LocalDateTime.now().minusHours(1).format(DateTimeFormatter.ofPattern(Constant.TIME_FORMAT));
+        subscriber = new Thread(() -> {
+            try {
+                client.subscribe(0, "/events/", since, batches::add);
+            } catch (RestClientException e) {
+                // сервис закрывает поток при остановке контекста
+            }
+        });
+        subscriber.setDaemon(true);
+        subscriber.start();
+        // пустой пакет проверки связи значит, что подписка зарегистрирована
+        assertNotNull(batches.poll(WAIT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        subscriber.interrupt();
+    }
+
+    @Test
+    void postedHitsArriveAsDeltas() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(client.postHits(List.of(
+                new StatisticInDto(APP, "/events/1", "10.0.0.1", now),
+                new StatisticInDto(APP, "/events/1", "10.0.0.1", now, 2),
+                new StatisticInDto(APP, "/events/1", "10.0.0.2", now),
+                new StatisticInDto(APP, "/events/2", "10.0.0.1", now),
+                new StatisticInDto(APP, "/compilations/1", "10.0.0.1", now)
+        )).getStatusCode().is2xxSuccessful());
+
+        Map<String, StatisticDeltaDto> deltas = awaitDeltas(2);
+        assertEquals(new StatisticDeltaDto("/events/1", 4, 2), deltas.get("/events/1"));
+        assertEquals(new StatisticDeltaDto("/events/2", 1, 1), deltas.get("/events/2"));
+
+        // повторный посетитель добавляет просмотр, но не уникального посетителя
+        assertTrue(client.postHit(new StatisticInDto(APP, "/events/2", "10.0.0.1", now.plusSeconds(1)))
+                .getStatusCode().is2xxSuccessful());
+        assertEquals(new StatisticDeltaDto("/events/2", 1, 0), awaitDeltas(1).get("/events/2"));
+    }
+
+    @Test
+    void revisitInSameSecondIsNotUnique() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        assertTrue(client.postHit(new StatisticInDto(APP, "/events/3", "10.0.0.1", now))
+                .getStatusCode().is2xxSuccessful());
+        assertEquals(new StatisticDeltaDto("/events/3", 1, 1), awaitDeltas(1).get("/events/3"));
+
+        // хранилище сравнивает время по секундам: повтор в ту же секунду неотличим от первого посещения
+        assertTrue(client.postHit(new StatisticInDto(APP, "/events/3", "10.0.0.1", now))
+                .getStatusCode().is2xxSuccessful());
+        assertEquals(new StatisticDeltaDto("/events/3", 1, 0), awaitDeltas(1).get("/events/3"));
+    }
+
+    /**
+     * Прирост может прийти несколькими пакетами, одинаковые uri складываются.
+     */
+    private Map<String, StatisticDeltaDto> awaitDeltas(int uris) throws InterruptedException {
+        Map<String, StatisticDeltaDto> deltas = new HashMap<>();
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (deltas.size() < uris) {
+            StatisticDeltaBatchDto batch = batches.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            assertNotNull(batch, "прирост не пришёл, получено " + deltas);
+            for (StatisticDeltaDto delta : batch.getDeltas()) {
+                deltas.merge(delta.getUri(), delta, (first, next) -> new StatisticDeltaDto(first.getUri(),
+                        first.getHits() + next.getHits(), first.getUnique() + next.getUnique()));
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Конфигурация сервиса без классов stats-client: корневой пакет на тестовом classpath общий с клиентом.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @ComponentScan
+    static class StatsApplication {
+    }
+}
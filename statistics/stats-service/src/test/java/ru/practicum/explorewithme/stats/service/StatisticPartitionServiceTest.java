@@ -0,0 +1,60 @@
+package ru.practicum.explorewithme.stats.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.explorewithme.stats.model.PartitionInterval;
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+import ru.practicum.explorewithme.stats.model.StatisticPartition;
+import ru.practicum.explorewithme.stats.repository.StatisticPartitionRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRollupRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatisticPartitionServiceTest {
+
+    private static final int RETENTION_DAYS = 30;
+
+    private final StatisticPartitionRepository partitionRepository = mock(StatisticPartitionRepository.class);
+    private final StatisticRollupRepository rollupRepository = mock(StatisticRollupRepository.class);
+    private final StatisticPartitionService service = new StatisticPartitionService(partitionRepository,
+            rollupRepository, mock(PlatformTransactionManager.class), PartitionInterval.DAY, 1, RETENTION_DAYS);
+
+    @Test
+    void expiredPartitionsAndRollupsAreDeletedTogether() {
+        LocalDateTime border = LocalDate.now().minusDays(RETENTION_DAYS).atStartOfDay();
+        StatisticPartition expired = new StatisticPartition("statistics_p_old", border.minusDays(1), border);
+        StatisticPartition kept = new StatisticPartition("statistics_p_kept", border, border.plusDays(1));
+        when(partitionRepository.findPartitions()).thenReturn(new ArrayList<>(List.of(expired, kept)));
+
+        service.maintainPartitions();
+
+        assertEquals(border, service.retentionBorder());
+        verify(partitionRepository).dropPartition(expired);
+        verify(partitionRepository, never()).dropPartition(kept);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            verify(rollupRepository).deleteBefore(granularity, border);
+        }
+    }
+
+    @Test
+    void hitsOlderThanRetentionAreRejected() {
+        when(partitionRepository.findPartitions()).thenReturn(new ArrayList<>());
+        service.maintainPartitions();
+        clearInvocations(partitionRepository);
+
+        assertFalse(service.accepts(service.retentionBorder().minusSeconds(1)));
+        verify(partitionRepository, never()).createPartition(any(StatisticPartition.class));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.model.RollupGranularity;
+import ru.practicum.explorewithme.stats.repository.IpDictionaryRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticBatchRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticRollupRepository;
+import ru.practicum.explorewithme.stats.repository.StatisticStreamRepository;
+import ru.practicum.explorewithme.stats.service.StatisticPartitionService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JdbcStatisticStorageTest {
+
+    private static final LocalDateTime BORDER = LocalDateTime.of(2025, 10, 18, 0, 0);
+
+    private final StatisticRepository statisticRepository = mock(StatisticRepository.class);
+    private final StatisticRollupRepository rollupRepository = mock(StatisticRollupRepository.class);
+    private final StatisticStreamRepository streamRepository = mock(StatisticStreamRepository.class);
+    private final StatisticPartitionService partitionService = mock(StatisticPartitionService.class);
+    private final JdbcStatisticStorage storage = new JdbcStatisticStorage(statisticRepository,
+            mock(StatisticBatchRepository.class), rollupRepository, streamRepository,
+            mock(IpDictionaryRepository.class), partitionService);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(storage, "useRollups", true);
+        when(partitionService.retentionBorder()).thenReturn(BORDER);
+    }
+
+    @Test
+    void rangePastRetentionReturnsNothing() {
+        LocalDateTime start = BORDER.minusDays(10);
+        LocalDateTime end = BORDER.minusSeconds(1);
+
+        assertTrue(storage.findStatistics(start, end, null, false).isEmpty());
+        assertTrue(storage.findStatistics(start, end, List.of("/events/1"), true).isEmpty());
+        assertTrue(storage.findStatistics(Map.of("/events/1", start), end, false).isEmpty());
+        List<StatisticViewDto> streamed = new ArrayList<>();
+        storage.streamStatistics(start, end, null, false, streamed::add);
+        assertTrue(streamed.isEmpty());
+
+        verifyNoInteractions(statisticRepository, rollupRepository, streamRepository);
+    }
+
+    @Test
+    void rangeCrossingRetentionStartsAtBorder() {
+        storage.findStatistics(BORDER.minusDays(10), BORDER.plusDays(2).minusSeconds(1), null, false);
+
+        verify(rollupRepository).sumHits(eq(RollupGranularity.DAY), eq(BORDER), eq(BORDER.plusDays(2)), any(),
+                any());
+    }
+
+    @Test
+    void rangesPerUriStartAtBorder() {
+        storage.findStatistics(Map.of("/events/1", BORDER.minusDays(10)), BORDER.plusDays(1).minusSeconds(1),
+                false);
+
+        verify(rollupRepository).sumHits(eq(RollupGranularity.DAY),
+                eq(List.of(new StatisticUriRange("/events/1", BORDER, BORDER.plusDays(1)))), any());
+    }
+
+    @Test
+    void rangeWithinRetentionIsQueriedAsIs() {
+        LocalDateTime start = BORDER.plusDays(3).plusHours(5);
+
+        storage.findStatistics(start, start.plusMinutes(30).minusSeconds(1), List.of("/events/1"), false);
+
+        verify(rollupRepository).sumHits(eq(RollupGranularity.MINUTE), eq(start), eq(start.plusMinutes(30)),
+                anyList(), any());
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinuteRingTest {
+
+    @Test
+    void sumsHitsInRange() {
+        MinuteRing ring = new MinuteRing(10);
+        ring.add(100, 2);
+        ring.add(100, 3);
+        ring.add(101, 1);
+        ring.add(105, 7);
+
+        assertEquals(6, ring.sum(100, 102));
+        assertEquals(13, ring.sum(100, 106));
+        assertEquals(0, ring.sum(102, 105));
+        assertEquals(7, ring.sum(105, 106));
+    }
+
+    @Test
+    void newerMinuteReplacesSlot() {
+        MinuteRing ring = new MinuteRing(10);
+        ring.add(100, 5);
+        ring.add(110, 1);
+
+        assertEquals(0, ring.sum(100, 101));
+        assertEquals(1, ring.sum(110, 111));
+    }
+
+    @Test
+    void lateHitForReplacedMinuteIsDropped() {
+        MinuteRing ring = new MinuteRing(10);
+        ring.add(110, 1);
+
+        assertTrue(ring.add(100, 5));
+        assertEquals(0, ring.sum(100, 101));
+        assertEquals(1, ring.sum(110, 111));
+    }
+
+    @Test
+    void negativeMinutesUseFloorSlots() {
+        MinuteRing ring = new MinuteRing(10);
+        ring.add(-1, 4);
+        ring.add(9, 1);
+
+        assertEquals(0, ring.sum(-1, 0));
+        assertEquals(1, ring.sum(9, 10));
+    }
+
+    @Test
+    void retiredRingRejectsWrites() {
+        MinuteRing ring = new MinuteRing(10);
+        ring.add(100, 1);
+
+        assertFalse(ring.retireIfOlderThan(100));
+        assertTrue(ring.retireIfOlderThan(101));
+        assertFalse(ring.retireIfOlderThan(101));
+        assertFalse(ring.add(100, 1));
+        assertEquals(1, ring.sum(100, 101));
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        MinuteRing ring = new MinuteRing(60);
+        int threads = 4;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ring.add(1000 + i % 30, 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals((long) threads * perThread, ring.sum(1000, 1030));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.explorewithme.stats.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.explorewithme.StatisticViewDto;
+import ru.practicum.explorewithme.stats.model.Statistic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SegmentStatisticStorageTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2022, 10, 1, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void weightedHitIsStoredAsOneRecord() throws IOException {
+        SegmentStatisticStorage storage = new SegmentStatisticStorage(dir.toString(), 2, false);
+        storage.saveAll(List.of(hit("/events/1", "10.0.0.1", TIME, 5000), hit("/events/1", "10.0.0.2", TIME, 1)));
+
+        assertEquals(List.of(new StatisticViewDto("ewm", "/events/1", 5001)),
+                storage.findStatistics(TIME.minusHours(1), TIME.plusHours(1), null, false));
+        assertEquals(List.of(new StatisticViewDto("ewm", "/events/1", 2)),
+                storage.findStatistics(TIME.minusHours(1), TIME.plusHours(1), null, true));
+        assertEquals(1, segments());
+        storage.close();
+    }
+
+    @Test
+    void weightAndTimeSurviveReopen() throws IOException {
+        LocalDateTime early = LocalDateTime.of(1960, 1, 1, 0, 0);
+        SegmentStatisticStorage storage = new SegmentStatisticStorage(dir.toString(), 16, false);
+        storage.saveAll(List.of(hit("/events/1", "10.0.0.1", early, 3), hit("/events/2", "10.0.0.1", TIME, 7)));
+        storage.close();
+
+        SegmentStatisticStorage reopened = new SegmentStatisticStorage(dir.toString(), 16, false);
+        assertEquals(List.of(new StatisticViewDto("ewm", "/events/1", 3)),
+                reopened.findStatistics(early, early.plusSeconds(1), null, false));
+        assertEquals(List.of(new StatisticViewDto("ewm", "/events/2", 7)),
+                reopened.findStatistics(TIME, TIME.plusSeconds(1), List.of("/events/2"), false));
+        reopened.close();
+    }
+
+    @Test
+    void hitsAboveRecordLimitAreSplit() throws IOException {
+        SegmentStatisticStorage storage = new SegmentStatisticStorage(dir.toString(), 16, false);
+        storage.saveAll(List.of(hit("/events/1", "10.0.0.1", TIME, HitSegment.MAX_HITS + 1)));
+
+        assertEquals(List.of(new StatisticViewDto("ewm", "/events/1", HitSegment.MAX_HITS + 1L)),
+                storage.findStatistics(TIME, TIME, null, false));
+        storage.close();
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static Statistic hit(String uri, String ip, LocalDateTime timestamp, int hits) {
+        return Statistic.builder().app("ewm").uri(uri).ip(ip).timestamp(timestamp).hits(hits).build();
+    }
+}
@@ -11,6 +11,7 @@ export const userService = {
 export const eventService = {
   getPublicEvents: (params) => api.get('/admin/events', { params }),
   getEventById: (id) => api.get(`/events/${id}`),
+  getEventClusters: (params) => api.get('/events/clusters', { params }),
   getUserEvents: (userId, params) => api.get(`/users/${userId}/events`, { params }),
   createEvent: (userId, eventData) => api.post(`/users/${userId}/events`, eventData),
   updateEvent: (userId, eventId, eventData) => api.patch(`/users/${userId}/events/${eventId}`, eventData),